@@ -0,0 +1,83 @@
+package com.enuygun.benchmarks;
+
+import com.enuygun.utilities.CommandMetrics;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Timing loop of the benchmarks: a few warm up runs, then the measured ones. Prints the mean time
+ * and the WebDriver commands per operation, the commands are counted by CommandMetrics.
+ * The benchmarks are not part of the regular run, start them with
+ *   mvn test -Dsurefire.suiteXmlFiles=benchmarks.xml -Dbrowser=chrome-headless
+ */
+public class Benchmark {
+
+    private Benchmark() {
+
+    }
+
+    /**
+     * @param name file under src/test/resources/fixtures
+     * @return file: url of the fixture page
+     */
+    public static String fixture(String name) {
+        return Paths.get(System.getProperty("user.dir"), "src", "test", "resources", "fixtures", name).toUri().toString();
+    }
+
+    public static Result measure(String name, int warmup, int repetitions, Runnable operation) {
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+        long commands = CommandMetrics.getCommandCount();
+        long start = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            operation.run();
+        }
+        Result result = new Result(name, (System.nanoTime() - start) / (double) repetitions,
+                (CommandMetrics.getCommandCount() - commands) / (double) repetitions);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * @return bytes of heap in use after full collections, for the memory benchmarks
+     */
+    public static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static class Result {
+        private final String name;
+        private final double nanosPerOperation;
+        private final double commandsPerOperation;
+
+        private Result(String name, double nanosPerOperation, double commandsPerOperation) {
+            this.name = name;
+            this.nanosPerOperation = nanosPerOperation;
+            this.commandsPerOperation = commandsPerOperation;
+        }
+
+        public double getMillisPerOperation() {
+            return nanosPerOperation / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        public double getCommandsPerOperation() {
+            return commandsPerOperation;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-60s %10.2f ms/op %8.1f commands/op", name, getMillisPerOperation(), commandsPerOperation);
+        }
+    }
+}
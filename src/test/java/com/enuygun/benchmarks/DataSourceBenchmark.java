@@ -0,0 +1,80 @@
+package com.enuygun.benchmarks;
+
+import com.enuygun.utilities.ExcelUtil;
+import com.enuygun.utilities.TestDataSource;
+import com.enuygun.utilities.XlsxStreamReader;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+
+/*
+ * Rows per second of the test data sources over the same 20k rows: the loaded workbook of ExcelUtil,
+ * XlsxStreamReader, CsvDataSource and JsonLinesDataSource. Every row is read to the end. No browser needed.
+ */
+public class DataSourceBenchmark {
+
+    private static final int ROWS = 20000;
+
+    private String xlsx;
+    private String csv;
+    private String jsonl;
+
+    @BeforeClass
+    public void writeFixtures() throws IOException {
+        xlsx = SheetFixture.xlsx(ROWS);
+        csv = SheetFixture.csv(ROWS);
+        jsonl = SheetFixture.jsonl(ROWS);
+    }
+
+    private static int count(Iterator<String[]> rows) {
+        int count = 0;
+        while (rows.hasNext()) {
+            rows.next();
+            count++;
+        }
+        return count;
+    }
+
+    private static void read(String path) {
+        try (TestDataSource source = TestDataSource.open(path, SheetFixture.SHEET)) {
+            Assert.assertEquals(count(source.rows()), ROWS);
+        }
+    }
+
+    private static void rowsPerSecond(String name, Runnable read) {
+        Benchmark.Result result = Benchmark.measure(name, 1, 5, read);
+        System.out.println(String.format("%-60s %10.0f rows/s", name, ROWS / (result.getMillisPerOperation() / 1000)));
+    }
+
+    private static String[][] rows(Supplier<TestDataSource> open) {
+        try (TestDataSource source = open.get()) {
+            return source.getDataArrayWithoutFirstRow();
+        }
+    }
+
+    @Test
+    public void rowsPerSecond() {
+        // the same data whatever the format
+        String[][] expected = XlsxStreamReader.getDataArray(xlsx, SheetFixture.SHEET, true);
+        Assert.assertEquals(rows(() -> TestDataSource.open(csv, null)), expected);
+        Assert.assertEquals(rows(() -> TestDataSource.open(jsonl, null)), expected);
+
+        rowsPerSecond("ExcelUtil, loaded workbook", () -> {
+            ExcelUtil excel = new ExcelUtil(xlsx, SheetFixture.SHEET);
+            // reading a cell loads the workbook, the rows then come from it and not from SheetCache
+            excel.getCellData(0, 0);
+            Assert.assertEquals(count(excel.rows()), ROWS);
+        });
+        rowsPerSecond("XlsxStreamReader", () -> {
+            try (XlsxStreamReader reader = new XlsxStreamReader(xlsx, SheetFixture.SHEET)) {
+                Assert.assertEquals(count(reader), ROWS + 1);
+            }
+        });
+        rowsPerSecond("CsvDataSource", () -> read(csv));
+        rowsPerSecond("JsonLinesDataSource", () -> read(jsonl));
+    }
+}
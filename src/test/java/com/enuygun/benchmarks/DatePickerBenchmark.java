@@ -0,0 +1,66 @@
+package com.enuygun.benchmarks;
+
+import com.enuygun.utilities.BrowserUtils;
+import com.enuygun.utilities.Driver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.time.LocalDate;
+
+/*
+ * Picking a date three months ahead on fixtures/calendar.html: the old loop of selectDateByMonth
+ * (probe the month header with a 20 s implicit wait, press next month when it is missing)
+ * against DatePicker, which moves to the month in one async script
+ */
+public class DatePickerBenchmark {
+
+    private static final LocalDate DATE = LocalDate.of(2030, 4, 5);
+
+    @BeforeClass
+    public void openFixture() {
+        Driver.get().get(Benchmark.fixture("calendar.html") + "?start=2030-1");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void closeDriver() {
+        Driver.closeDriver();
+    }
+
+    @Test
+    public void selectDateByMonth() {
+        String month = BrowserUtils.selectmounth(DATE.getMonthValue()) + " " + DATE.getYear();
+        String day = String.valueOf(DATE.getDayOfMonth());
+
+        // every probe of a month that is not shown yet waits out the implicit wait, one run is enough
+        Benchmark.Result oldLoop = Benchmark.measure("selectDateByMonth, header probe loop", 0, 1, () -> {
+            reset();
+            for (int i = 0; i <= 30; ) {
+                if (BrowserUtils.isElementExist(By.xpath("//div[@data-visible='true']//div//strong[text()='" + month + "']"), 20)) {
+                    BrowserUtils.click(By.xpath("//*[contains(@aria-label,'" + month + "')]//div[@class='CalendarDay__content' and text()='" + day + "']"));
+                    break;
+                } else
+                    BrowserUtils.click(By.xpath("//div[@aria-label='Move forward to switch to the next month.']"));
+            }
+        });
+        Assert.assertEquals(selected(), "2030-4-5");
+
+        Benchmark.Result datePicker = Benchmark.measure("selectDateByMonth, DatePicker", 2, 10, () -> {
+            reset();
+            BrowserUtils.selectDateByMonth(DATE);
+        });
+        Assert.assertEquals(selected(), "2030-4-5");
+        Assert.assertTrue(datePicker.getMillisPerOperation() < oldLoop.getMillisPerOperation());
+    }
+
+    private static void reset() {
+        ((JavascriptExecutor) Driver.get()).executeScript("resetCalendar();");
+    }
+
+    private static String selected() {
+        return (String) ((JavascriptExecutor) Driver.get()).executeScript("return document.body.getAttribute('data-selected');");
+    }
+}
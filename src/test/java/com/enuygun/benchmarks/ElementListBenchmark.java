@@ -0,0 +1,66 @@
+package com.enuygun.benchmarks;
+
+import com.enuygun.utilities.BrowserUtils;
+import com.enuygun.utilities.Driver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Reading a list of elements one command per element (the old BrowserUtils loops)
+ * against the single script of getElementsText / getElementsAttribute, on fixtures/element-list.html
+ */
+public class ElementListBenchmark {
+
+    private static final int ITEMS = 200;
+    private static final By LOCATOR = By.cssSelector("#airports li");
+
+    @BeforeClass
+    public void openFixture() {
+        Driver.get().get(Benchmark.fixture("element-list.html") + "?items=" + ITEMS);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void closeDriver() {
+        Driver.closeDriver();
+    }
+
+    @Test
+    public void texts() {
+        List<String> expected = new ArrayList<>();
+        Benchmark.Result perElement = Benchmark.measure("texts, findElements + getText per element", 2, 10, () -> {
+            expected.clear();
+            for (WebElement element : Driver.get().findElements(LOCATOR)) {
+                expected.add(element.getText());
+            }
+        });
+        Benchmark.Result oneScript = Benchmark.measure("texts, getElementsText(By)", 2, 10, () -> BrowserUtils.getElementsText(LOCATOR));
+
+        Assert.assertEquals(BrowserUtils.getElementsText(LOCATOR), expected);
+        Assert.assertEquals(perElement.getCommandsPerOperation(), ITEMS + 1.0);
+        Assert.assertEquals(oneScript.getCommandsPerOperation(), 1.0);
+    }
+
+    @Test
+    public void attributes() {
+        List<String> expected = new ArrayList<>();
+        Benchmark.Result perElement = Benchmark.measure("attributes, findElements + getAttribute per element", 2, 10, () -> {
+            expected.clear();
+            for (WebElement element : Driver.get().findElements(LOCATOR)) {
+                expected.add(element.getAttribute("data-code"));
+            }
+        });
+        Benchmark.Result oneScript = Benchmark.measure("attributes, getElementsAttribute(By)", 2, 10,
+                () -> BrowserUtils.getElementsAttribute(LOCATOR, "data-code"));
+
+        Assert.assertEquals(BrowserUtils.getElementsAttribute(LOCATOR, "data-code"), expected);
+        Assert.assertEquals(perElement.getCommandsPerOperation(), ITEMS + 1.0);
+        Assert.assertEquals(oneScript.getCommandsPerOperation(), 1.0);
+    }
+}
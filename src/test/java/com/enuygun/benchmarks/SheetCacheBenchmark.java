@@ -0,0 +1,62 @@
+package com.enuygun.benchmarks;
+
+import com.enuygun.utilities.ConfigurationReader;
+import com.enuygun.utilities.ExcelUtil;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * ExcelUtil.getDataArray() of a 20k row sheet: parsing the workbook like before SheetCache,
+ * a cold read (parse and write the cache file) and a warm read (map the cache file of an unchanged workbook).
+ * No browser needed.
+ */
+public class SheetCacheBenchmark {
+
+    private static final int ROWS = 20000;
+
+    private String path;
+
+    @BeforeClass
+    public void writeFixture() throws IOException {
+        path = SheetFixture.xlsx(ROWS);
+    }
+
+    // the cache files of the fixture, so the next read is a cold one
+    private void clearCache() {
+        File directory = new File(ConfigurationReader.get("excel.cacheDir", System.getProperty("user.dir") + "/test-output/sheet-cache"));
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(new File(path).getName() + "."));
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private String[][] workbook() {
+        ExcelUtil excel = new ExcelUtil(path, SheetFixture.SHEET);
+        // any cell read loads the workbook, getDataArray() then reads it instead of the cache
+        excel.getCellData(0, 0);
+        return excel.getDataArray();
+    }
+
+    @Test
+    public void coldAgainstWarm() {
+        Benchmark.Result parsed = Benchmark.measure("getDataArray, workbook without cache", 1, 5, this::workbook);
+        Benchmark.Result cold = Benchmark.measure("getDataArray, cold cache (parse + write)", 1, 5, () -> {
+            clearCache();
+            new ExcelUtil(path, SheetFixture.SHEET).getDataArray();
+        });
+        Benchmark.Result warm = Benchmark.measure("getDataArray, warm cache (mapped file)", 1, 5,
+                () -> new ExcelUtil(path, SheetFixture.SHEET).getDataArray());
+
+        Assert.assertEquals(new ExcelUtil(path, SheetFixture.SHEET).getDataArray(), workbook());
+        Assert.assertTrue(warm.getMillisPerOperation() < parsed.getMillisPerOperation(),
+                "warm " + warm.getMillisPerOperation() + " ms, workbook " + parsed.getMillisPerOperation() + " ms");
+        System.out.println(String.format("Sheet cache of %d rows: cold %.1fx, warm %.1fx of the workbook parse", ROWS,
+                cold.getMillisPerOperation() / parsed.getMillisPerOperation(), warm.getMillisPerOperation() / parsed.getMillisPerOperation()));
+    }
+}
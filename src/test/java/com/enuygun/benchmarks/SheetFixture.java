@@ -0,0 +1,120 @@
+package com.enuygun.benchmarks;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/*
+ * Generated test data for the data benchmarks: the same rows as xlsx, csv and JSON lines,
+ * written once into test-output/benchmark-data and reused by later runs.
+ * The values repeat like real test data does: a few airports, dates and passenger types.
+ */
+public class SheetFixture {
+
+    public static final String SHEET = "Data";
+    public static final String[] COLUMNS = {"id", "from", "to", "date", "adults", "children", "cabin", "price", "currency", "note"};
+
+    private static final String[] AIRPORTS = {"IST", "SAW", "ESB", "ADB", "AYT", "TZX", "DLM", "BJV"};
+    private static final String[] CABINS = {"economy", "business"};
+
+    private SheetFixture() {
+
+    }
+
+    private static File directory() {
+        File directory = new File(System.getProperty("user.dir"), "test-output/benchmark-data");
+        directory.mkdirs();
+        return directory;
+    }
+
+    static String[] row(int i) {
+        return new String[]{String.valueOf(i), AIRPORTS[i % AIRPORTS.length], AIRPORTS[(i * 3 + 1) % AIRPORTS.length],
+                String.format("2026-%02d-%02d", i % 12 + 1, i % 28 + 1), String.valueOf(i % 4 + 1), String.valueOf(i % 3),
+                CABINS[i % 7 == 0 ? 1 : 0], String.valueOf(500 + i % 1000), "TRY", i % 10 == 0 ? "with \"baggage\", seat" : ""};
+    }
+
+    /**
+     * @return path of an xlsx file with a header and the given number of data rows
+     */
+    public static String xlsx(int rows) throws IOException {
+        File file = new File(directory(), "sheet-" + rows + ".xlsx");
+        if (file.isFile())
+            return file.getPath();
+        SXSSFWorkbook workbook = new SXSSFWorkbook(1000);
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            Sheet sheet = workbook.createSheet(SHEET);
+            write(sheet.createRow(0), COLUMNS);
+            for (int i = 1; i <= rows; i++) {
+                write(sheet.createRow(i), row(i));
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        return file.getPath();
+    }
+
+    /**
+     * @return path of a csv file with the same header and rows as xlsx(rows)
+     */
+    public static String csv(int rows) throws IOException {
+        File file = new File(directory(), "sheet-" + rows + ".csv");
+        if (file.isFile())
+            return file.getPath();
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writeCsv(out, COLUMNS);
+            for (int i = 1; i <= rows; i++) {
+                writeCsv(out, row(i));
+            }
+        }
+        return file.getPath();
+    }
+
+    private static void writeCsv(Writer out, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                out.write(',');
+            String value = values[i];
+            if (value.contains(",") || value.contains("\"") || value.contains("\n"))
+                value = "\"" + value.replace("\"", "\"\"") + "\"";
+            out.write(value);
+        }
+        out.write("\r\n");
+    }
+
+    /**
+     * @return path of a JSON lines file with the same rows as xlsx(rows)
+     */
+    public static String jsonl(int rows) throws IOException {
+        File file = new File(directory(), "sheet-" + rows + ".jsonl");
+        if (file.isFile())
+            return file.getPath();
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 1; i <= rows; i++) {
+                String[] values = row(i);
+                out.write('{');
+                for (int j = 0; j < values.length; j++) {
+                    if (j > 0)
+                        out.write(", ");
+                    out.write("\"" + COLUMNS[j] + "\": \"" + values[j].replace("\\", "\\\\").replace("\"", "\\\"") + "\"");
+                }
+                out.write("}\n");
+            }
+        }
+        return file.getPath();
+    }
+
+    private static void write(Row row, String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            row.createCell(i).setCellValue(values[i]);
+        }
+    }
+}
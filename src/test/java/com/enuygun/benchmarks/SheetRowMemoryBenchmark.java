@@ -0,0 +1,63 @@
+package com.enuygun.benchmarks;
+
+import com.enuygun.utilities.XlsxStreamReader;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+ * Heap kept by getDataList() of a 20k row sheet: a HashMap per row (the old ExcelUtil.getDataList)
+ * against SheetRow, which shares one header between the rows. Both hold the same value strings,
+ * the difference is the per row map. No browser needed.
+ */
+public class SheetRowMemoryBenchmark {
+
+    private static final int ROWS = 20000;
+
+    private String path;
+
+    @BeforeClass
+    public void writeFixture() throws IOException {
+        path = SheetFixture.xlsx(ROWS);
+    }
+
+    private List<Map<String, String>> hashMaps() {
+        String[][] data = XlsxStreamReader.getDataArray(path, SheetFixture.SHEET, false);
+        List<Map<String, String>> rows = new ArrayList<>();
+        for (int i = 1; i < data.length; i++) {
+            Map<String, String> row = new HashMap<>();
+            for (int j = 0; j < data[0].length; j++) {
+                row.put(data[0][j], data[i][j]);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static long retained(String name, Supplier<List<Map<String, String>>> load) {
+        long before = Benchmark.usedHeap();
+        List<Map<String, String>> rows = load.get();
+        long bytes = Benchmark.usedHeap() - before;
+        // keeps the rows reachable until after the measurement
+        Assert.assertEquals(rows.size(), ROWS);
+        System.out.println(String.format("%-60s %10d KB %8d bytes/row", name, bytes / 1024, bytes / ROWS));
+        return bytes;
+    }
+
+    @Test
+    public void hashMapAgainstSheetRow() {
+        Assert.assertEquals(XlsxStreamReader.getDataList(path, SheetFixture.SHEET), hashMaps());
+
+        long maps = retained("getDataList, HashMap per row", this::hashMaps);
+        long sheetRows = retained("getDataList, SheetRow with a shared header", () -> XlsxStreamReader.getDataList(path, SheetFixture.SHEET));
+
+        Assert.assertTrue(sheetRows < maps, "SheetRow " + sheetRows + " bytes, HashMap " + maps + " bytes");
+    }
+}
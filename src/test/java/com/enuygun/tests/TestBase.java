@@ -1,11 +1,23 @@
 package com.enuygun.tests;
 
-import com.aventstack.extentreports.ExtentReports;
-import com.aventstack.extentreports.ExtentTest;
-import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
+import com.aventstack.extentreports.MediaEntityBuilder;
 import com.enuygun.utilities.BrowserUtils;
+import com.enuygun.utilities.CommandMetrics;
 import com.enuygun.utilities.ConfigurationReader;
 import com.enuygun.utilities.Driver;
+import com.enuygun.utilities.DriverBinaryResolver;
+import com.enuygun.utilities.DriverPool;
+import com.enuygun.utilities.LocatorCache;
+import com.enuygun.utilities.PageReadiness;
+import com.enuygun.utilities.ReportWriter;
+import com.enuygun.utilities.ScreenshotRing;
+import com.enuygun.utilities.ScreenshotWriter;
+import com.enuygun.utilities.SheetCache;
+import com.enuygun.utilities.StepLogger;
+import com.enuygun.utilities.TimeoutManager;
+import com.enuygun.utilities.Waiter;
+import com.enuygun.utilities.failedTestRunners.FailureClassifier;
+import com.enuygun.utilities.failedTestRunners.RetryListenerClass;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.ui.WebDriverWait;
@@ -13,94 +25,153 @@ import org.testng.ITestResult;
 import org.testng.annotations.*;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class TestBase {
-    protected WebDriver driver;
-    protected Actions actions;
-    protected WebDriverWait wait;
-    protected static ExtentReports report;
-    //this class is used to create HTML report file
-    protected static ExtentHtmlReporter htmlReporter;
-    //this will  define a test, enables adding logs, authors, test steps
-    protected static ExtentTest extentLogger;
-
-    //env set up
-    protected String url;
+    //logs to the report test of the current thread, the report itself is written by ReportWriter
+    protected static StepLogger extentLogger = StepLogger.get();
+    //stands in for the ExtentReports, report.createTest(name) names the test of the current thread
+    protected static final ReportWriter.Report report = ReportWriter.getReport();
+
+    /*
+     * with parallel="methods" one test class instance is shared by several worker threads,
+     * so the driver and its helpers are looked up for the calling thread instead of stored in fields
+     */
+    protected WebDriver getDriver() {
+        return Driver.get();
+    }
+
+    protected Actions getActions() {
+        return new Actions(Driver.get());
+    }
+
+    protected WebDriverWait getWait() {
+        return new WebDriverWait(Driver.get(), 10);
+    }
 
     @BeforeTest
     public void setUpTest() {
 
-        //initialize the class
-        report = new ExtentReports();
-
         //create a report path
         String projectPath = System.getProperty("user.dir");
         String path = projectPath + "/test-output/report.html";
 
-        //initialize the html reporter with the report path
-        htmlReporter = new ExtentHtmlReporter(path);
-
-        //attach the html report to report object
-        report.attachReporter(htmlReporter);
-
-        //title in report
-        htmlReporter.config().setReportName("Enuygun Smoke Test");
-
         //set environment information
-        report.setSystemInfo("Environment", "QA");
-        report.setSystemInfo("Browser", ConfigurationReader.get("browser"));
-        report.setSystemInfo("OS", System.getProperty("os.name"));
+        Map<String, String> systemInfo = new LinkedHashMap<>();
+        systemInfo.put("Environment", "QA");
+        systemInfo.put("Browser", ConfigurationReader.get("browser"));
+        systemInfo.put("OS", System.getProperty("os.name"));
+
+        //one report for the whole run, its events are written in the background and the HTML at the end of the suite
+        ReportWriter.open(path, "Enuygun Smoke Test", systemInfo);
 
     }
 
     @BeforeMethod
     @Parameters("env")
-    public void setUp(@Optional String env) {
+    public void setUp(@Optional String env, Method method) {
+
+        CommandMetrics.startTest(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+        ScreenshotRing.reset();
+        ReportWriter.startTest(RetryListenerClass.isTailPhase() ? method.getName() + " (retry)" : method.getName());
 
-        System.out.println("env== " + env);
+        //env set up, a local because the test class instance is shared by the worker threads
+        //both keys from the same version of the configuration
+        ConfigurationReader.Snapshot config = ConfigurationReader.snapshot();
+        String url;
         if (env == null) {
-            url = ConfigurationReader.get("browserUrl");
+            url = config.get("browserUrl");
         } else {
 
-            url = ConfigurationReader.get(env + "browserUl");
+            url = config.get(env + "browserUrl");
         }
-        driver = Driver.get();
-        driver.manage().window().maximize();
-        driver.manage().timeouts().implicitlyWait(20, TimeUnit.SECONDS);
-        actions = new Actions(driver);
-        wait = new WebDriverWait(driver, 10);
+        WebDriver driver = Driver.get();
+        TimeoutManager.of(driver).implicitlyWait(20, TimeUnit.SECONDS);
         driver.get(url);
+        DriverPool.visited(driver, url);
 
     }
 
     //ITestResult class describes the result of a test in TestNG
     @AfterMethod
     public void tearDown(ITestResult result) throws InterruptedException, IOException {
-        //if test fails
-        if (result.getStatus() == ITestResult.FAILURE) {
-            //record the name of failed test case
-            extentLogger.fail(result.getName());
-
-            //take the screenshot and return location of screenshot
-            String screenShotPath = BrowserUtils.getScreenshot(result.getName());
-
-            //add your screenshot to your report
-            extentLogger.addScreenCaptureFromPath(screenShotPath);
-
-            //capture the exception and put inside the report
-            extentLogger.fail(result.getThrowable());
+        try {
+            //if test fails
+            if (result.getStatus() == ITestResult.FAILURE) {
+                //record the name of failed test case
+                extentLogger.fail(result.getName());
+
+                //take the screenshot and add it to your report, a dead session must not hide the failure
+                try {
+                    String screenShotPath = BrowserUtils.getScreenshot(result.getName());
+                    extentLogger.addScreenCaptureFromPath(screenShotPath);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    extentLogger.warning("Screenshot failed: " + e);
+                }
+
+                //the last steps before the failure, oldest first
+                addRingFrames(result);
+
+                //capture the exception and put inside the report
+                extentLogger.fail(result.getThrowable());
+
+            } else if (RetryListenerClass.isDeferred(result)) {
+                //an infrastructure flake, the test runs again after the regular tests
+                extentLogger.warning("First attempt failed, retried after the regular tests");
+                addRingFrames(result);
+                extentLogger.skip(result.getThrowable());
+            }
+        } finally {
+            //the session and the per test state are released even when the report steps fail
+            try {
+                // pooled sessions are reset on release, so there is nothing to wait for
+                if (!DriverPool.isEnabled())
+                    Thread.sleep(2000);
+            } finally {
+                // a session that crashed or timed out is not given to the next test, the retry gets a fresh one
+                if (result.getThrowable() != null && FailureClassifier.isRetryable(result.getThrowable()))
+                    Driver.discardDriver();
+                else
+                    Driver.closeDriver();
+                ReportWriter.endTest();
+                CommandMetrics.endTest();
+            }
+        }
+    }
 
+    private void addRingFrames(ITestResult result) throws IOException {
+        for (String[] frame : ScreenshotRing.flush(System.getProperty("user.dir") + "/test-output/Screenshots/" + result.getName())) {
+            extentLogger.evidence(frame[0], MediaEntityBuilder.createScreenCaptureFromPath(frame[1]).build());
         }
-        Thread.sleep(2000);
-        Driver.closeDriver();
     }
 
-    @AfterTest
-    public void tearDownTest() {
-        //this is when the report is actually created
-        report.flush();
+    @AfterSuite
+    public void tearDownSuite() {
+        // the retries run as a suite of their own inside this one, the outer suite cleans up
+        if (RetryListenerClass.isTailPhase())
+            return;
+        DriverPool.shutdown();
+        ScreenshotWriter.shutdown();
+        //the statistics of the run go to the environment of the report, the command latencies to command-metrics.json
+        addStatistics(DriverBinaryResolver.getStatistics());
+        addStatistics(Waiter.getStatistics());
+        addStatistics(TimeoutManager.getStatistics());
+        addStatistics(LocatorCache.getStatistics());
+        addStatistics(PageReadiness.getStatistics());
+        addStatistics(SheetCache.getStatistics());
+        //writes what is still queued and the final report
+        ReportWriter.close();
+        CommandMetrics.export(System.getProperty("user.dir") + "/test-output/command-metrics.json");
+    }
 
+    // "Name: values" becomes the row "Name" of the report's environment, multi-line values are joined with "; "
+    private static void addStatistics(String statistics) {
+        int colon = statistics.indexOf(':');
+        report.setSystemInfo(statistics.substring(0, colon), statistics.substring(colon + 1).trim().replace("\n  ", "; "));
     }
 
 
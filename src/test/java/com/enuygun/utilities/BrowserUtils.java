@@ -1,22 +1,19 @@
 package com.enuygun.utilities;
 
-import com.aventstack.extentreports.ExtentTest;
 import com.enuygun.data.DataFinder;
 import com.enuygun.data.GetData;
 import com.enuygun.tests.TestBase;
-import org.apache.commons.io.FileUtils;
 import org.openqa.selenium.*;
 import org.openqa.selenium.interactions.Actions;
-import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.Select;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 
-import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -24,7 +21,7 @@ import java.util.concurrent.TimeUnit;
 
 public class BrowserUtils {
 
-    protected static ExtentTest extentLogger;
+    protected static final StepLogger extentLogger = StepLogger.get();
 
     /*
      * takes screenshot
@@ -36,13 +33,12 @@ public class BrowserUtils {
         String date = new SimpleDateFormat("yyyy.MM.dd.hh.mmss").format(new Date());
         // TakesScreenshot ---> interface from selenium which takes screenshots
         TakesScreenshot ts = (TakesScreenshot) Driver.get();
-        File source = ts.getScreenshotAs(OutputType.FILE);
-        // full path to the screenshot location
-        String target = System.getProperty("user.dir") + "/test-output/Screenshots/" + name + date + ".png";
-        File finalDestination = new File(target);
-        // save the screenshot to the path given
-        FileUtils.copyFile(source, finalDestination);
-        return target;
+        // bytes stay in memory, no temp file on the test thread
+        byte[] source = ts.getScreenshotAs(OutputType.BYTES);
+        // full path to the screenshot location, without extension
+        String target = System.getProperty("user.dir") + "/test-output/Screenshots/" + name + date;
+        // encoded and saved in the background, the path is returned right away
+        return ScreenshotWriter.write(source, target);
     }
 
     /**
@@ -73,33 +69,83 @@ public class BrowserUtils {
 
     /**
      * return a list of string from a list of elements
+     * all texts are read with one script instead of one getText() command per element
      *
      * @param list of webelements
      * @return list of string
      */
     public static List<String> getElementsText(List<WebElement> list) {
-        List<String> elemTexts = new ArrayList<>();
-        for (WebElement el : list) {
-            elemTexts.add(el.getText());
-        }
-        return elemTexts;
+        if (list.isEmpty())
+            return new ArrayList<>();
+        return toStringList(((JavascriptExecutor) Driver.get()).executeScript(JsLocator.FUNCTIONS +
+                "return arguments[0].map(function (e) { return visible(e) ? (e.innerText || '').trim() : ''; });", list));
     }
 
     /**
      * Extracts text from list of elements matching the provided locator into new List<String>
+     * the lookup and all texts cost a single command
      *
      * @param locator
      * @return list of strings
      */
     public static List<String> getElementsText(By locator) {
+        return toStringList(queryAll(locator,
+                "return elements.map(function (e) { return visible(e) ? (e.innerText || '').trim() : ''; });"));
+    }
+
+    /**
+     * Reads the same attribute (or property, like WebElement.getAttribute) of every element matching the locator
+     * in a single command
+     *
+     * @param locator
+     * @param attributeName
+     * @return list of values, null where the element has no such attribute
+     */
+    public static List<String> getElementsAttribute(By locator, String attributeName) {
+        return toStringList(queryAll(locator,
+                "var name = arguments[2];" +
+                        "return elements.map(function (e) { return attribute(e, name); });", attributeName));
+    }
+
+    /**
+     * Checks the visibility of every element matching the locator in a single command
+     *
+     * @param locator
+     * @return list of isDisplayed() results
+     */
+    public static List<Boolean> getElementsVisibility(By locator) {
+        List<Boolean> visibility = new ArrayList<>();
+        for (Object value : (List<?>) queryAll(locator, "return elements.map(visible);")) {
+            visibility.add(Boolean.TRUE.equals(value));
+        }
+        return visibility;
+    }
 
-        List<WebElement> elems = Driver.get().findElements(locator);
-        List<String> elemTexts = new ArrayList<>();
+    /*
+     * runs the script with "elements" bound to all matches of the locator;
+     * arguments[2..] of the script are the given arguments
+     */
+    private static Object queryAll(By locator, String script, Object... arguments) {
+        JavascriptExecutor executor = (JavascriptExecutor) Driver.get();
+        Object[] scriptArguments = new Object[arguments.length + 2];
+        System.arraycopy(arguments, 0, scriptArguments, 2, arguments.length);
+        JsLocator jsLocator = JsLocator.of(locator);
+        if (jsLocator != null) {
+            scriptArguments[0] = jsLocator.getKind();
+            scriptArguments[1] = jsLocator.getValue();
+            return executor.executeScript(JsLocator.FUNCTIONS + "var elements = find(arguments[0], arguments[1]);" + script, scriptArguments);
+        }
+        // no DOM equivalent for this locator, the elements are looked up by the driver first
+        scriptArguments[0] = Driver.get().findElements(locator);
+        return executor.executeScript(JsLocator.FUNCTIONS + "var elements = arguments[0];" + script, scriptArguments);
+    }
 
-        for (WebElement el : elems) {
-            elemTexts.add(el.getText());
+    private static List<String> toStringList(Object scriptResult) {
+        List<String> values = new ArrayList<>();
+        for (Object value : (List<?>) scriptResult) {
+            values.add(value == null ? null : value.toString());
         }
-        return elemTexts;
+        return values;
     }
 
     /**
@@ -108,11 +154,7 @@ public class BrowserUtils {
      * @param seconds
      */
     public static void waitFor(int seconds) {
-        try {
-            Thread.sleep(seconds * 1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        Waiter.pause("waitFor", seconds * 1000L);
     }
 
     /**
@@ -169,14 +211,16 @@ public class BrowserUtils {
      * @param timeOutInSeconds
      */
     public static void waitForPageToLoad(long timeOutInSeconds) {
-        ExpectedCondition<Boolean> expectation = new ExpectedCondition<Boolean>() {
-            public Boolean apply(WebDriver driver) {
-                return ((JavascriptExecutor) driver).executeScript("return document.readyState").equals("complete");
-            }
-        };
         try {
-            WebDriverWait wait = new WebDriverWait(Driver.get(), timeOutInSeconds);
-            wait.until(expectation);
+            if (PageReadiness.isNetworkIdleMode()) {
+                // returns as soon as no request has been in flight for the quiet period
+                if (!PageReadiness.awaitIdle(timeOutInSeconds))
+                    System.err.println("Page did not become idle in " + timeOutInSeconds + " seconds");
+                return;
+            }
+            // polled inside the page, a single command instead of one per poll
+            if (!Waiter.untilInBrowser("waitForPageToLoad", "document.readyState === 'complete'", timeOutInSeconds * 1000))
+                System.err.println("Page was not loaded in " + timeOutInSeconds + " seconds");
         } catch (Throwable error) {
             error.printStackTrace();
         }
@@ -237,27 +281,13 @@ public class BrowserUtils {
      * @param element
      */
     public static void waitForStaleElement(WebElement element) {
-        int y = 0;
-        while (y <= 15) {
-            if (y == 1)
-                try {
-                    element.isDisplayed();
-                    break;
-                } catch (StaleElementReferenceException st) {
-                    y++;
-                    try {
-                        Thread.sleep(300);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                } catch (WebDriverException we) {
-                    y++;
-                    try {
-                        Thread.sleep(300);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                }
+        try {
+            Waiter.until("waitForStaleElement", 4500, () -> {
+                element.isDisplayed();
+                return true;
+            });
+        } catch (TimeoutException e) {
+            e.printStackTrace();
         }
     }
 
@@ -339,13 +369,13 @@ public class BrowserUtils {
      * @param timeout
      */
     public static void clickWithTimeOut(WebElement element, int timeout) {
-        for (int i = 0; i < timeout; i++) {
-            try {
+        try {
+            Waiter.until("clickWithTimeOut", timeout * 1000L, () -> {
                 element.click();
-                return;
-            } catch (WebDriverException e) {
-                waitFor(1);
-            }
+                return true;
+            });
+        } catch (TimeoutException e) {
+            e.printStackTrace();
         }
     }
 
@@ -380,23 +410,16 @@ public class BrowserUtils {
      * @param attempts
      */
     public static void clickWithWait(By by, int attempts) {
-        int counter = 0;
-        //click on element as many as you specified in attempts parameter
-        while (counter < attempts) {
-            try {
+        //click on element until it succeeds, the old one-second-per-attempt budget is kept
+        try {
+            Waiter.until("clickWithWait", attempts * 1000L, () -> {
                 //selenium must look for element again
-                clickWithJS(Driver.get().findElement(by));
-                //if click is successful - then break
-                break;
-            } catch (WebDriverException e) {
-                //if click failed
-                //print exception
-                //print attempt
-                e.printStackTrace();
-                ++counter;
-                //wait for 1 second, and try to click again
-                waitFor(1);
-            }
+                clickWithJS(getDriver().findElement(by));
+                return true;
+            });
+        } catch (TimeoutException e) {
+            //if click never succeeded print the last failure
+            e.printStackTrace();
         }
     }
 
@@ -419,23 +442,45 @@ public class BrowserUtils {
         clickWithTimeOut(byInput, 3);
         waitForVisibility(byUl, 5);
 
-        List<WebElement> webElementsLi = byLi;
-        for (int i = 0; i < webElementsLi.size(); i++) {
-            if (webElementsLi.get(i).getText().contains(itemName)) {
-                executor.executeScript("arguments[0].click();", webElementsLi.get(i));
-                break;
-            } else {
-            }
-        }
+        // the matching <li> is picked and clicked in the page, not with one getText() per item
+        executor.executeScript(JsLocator.FUNCTIONS +
+                "var items = arguments[0], name = arguments[1];" +
+                "for (var i = 0; i < items.length; i++) {" +
+                "  if (visible(items[i]) && (items[i].innerText || '').indexOf(name) >= 0) { items[i].click(); return i; }" +
+                "}" +
+                "return -1;", byLi, itemName);
     }
 
 
-    public static WebDriver driver = Driver.get();
-    protected static WebDriverWait wait = new WebDriverWait(Driver.get(), GetData.DEFAULT_WAIT);
-    protected static WebDriverWait waitZero = new WebDriverWait(Driver.get(), 0);
-    protected static WebDriverWait waitLoader = new WebDriverWait(Driver.get(), GetData.DEFAULT_WAIT_LOADERBOX);
     public static long waitLoaderr = GetData.DEFAULT_WAIT_LOADERBOXX;
 
+    /*
+     * driver and waits are resolved on every call instead of being kept in static fields,
+     * so each TestNG worker thread talks to its own browser session
+     */
+    public static WebDriver getDriver() {
+        return Driver.get();
+    }
+
+    protected static WebDriverWait getWait() {
+        return new WebDriverWait(Driver.get(), GetData.DEFAULT_WAIT);
+    }
+
+    /*
+     * timeout changes go through the session's TimeoutManager, which skips the ones that change nothing
+     */
+    protected static TimeoutManager getTimeouts() {
+        return TimeoutManager.of(Driver.get());
+    }
+
+    protected static WebDriverWait getWaitZero() {
+        return new WebDriverWait(Driver.get(), 0);
+    }
+
+    protected static WebDriverWait getWaitLoader() {
+        return new WebDriverWait(Driver.get(), GetData.DEFAULT_WAIT_LOADERBOX);
+    }
+
 
     /**
      * navigate to url
@@ -444,10 +489,11 @@ public class BrowserUtils {
     public static void navigateTo(GetData.Url url) {
 
         try {
-            Driver.get().get(DataFinder.getUrl(url));
-            Driver.get().manage()
-                    .timeouts()
-                    .pageLoadTimeout(waitLoaderr, TimeUnit.SECONDS);
+            String address = DataFinder.getUrl(url);
+            Driver.get().get(address);
+            DriverPool.visited(Driver.get(), address);
+            getTimeouts().pageLoadTimeout(waitLoaderr, TimeUnit.SECONDS);
+            ScreenshotRing.capture(() -> "Navigate : " + url);
             extentLogger.pass("Web application launched");
         } catch (Exception e) {
             extentLogger.error("Error while getting app url : " + e);
@@ -469,7 +515,7 @@ public class BrowserUtils {
         String url = null;
 
         try {
-            url = driver.getCurrentUrl();
+            url = getDriver().getCurrentUrl();
             extentLogger.info("Url : " + url);
             extentLogger.pass("Url bilgisi başarıyla alındı...");
         } catch (Exception e) {
@@ -514,20 +560,34 @@ public class BrowserUtils {
 
         // TimeUnit.SECONDS);
 
+        JsLocator jsLocator = JsLocator.of(by);
+        if (jsLocator != null) {
+            try {
+                return locateAndPrepare(by, jsLocator, index.length == 0 ? 0 : index[0]);
+            } catch (JavascriptException e) {
+                // the fused script could not run on this page, fall back to the step by step lookup below
+            } catch (Exception e) {
+                extentLogger.error("Error while clicking webelement : " + e);
+                extentLogger.fail("Error while clicking webelement : " + e);
+
+                throw new RuntimeException(e);
+            }
+        }
+
         WebElement element = null;
         untilElementAppear(by);
         try {
             if (index.length == 0)
-                element = driver.findElement(by);
+                element = getDriver().findElement(by);
             else
-                element = driver.findElements(by)
+                element = getDriver().findElements(by)
                         .get(index[0]);
 
-            ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(false);arguments[0].focus();", element);
+            ((JavascriptExecutor) getDriver()).executeScript("arguments[0].scrollIntoView(false);arguments[0].focus();", element);
             // ((JavascriptExecutor)
             // driver).executeScript("arguments[0].focus();", element);
             // wait.until(ExpectedConditions.visibilityOf(element));
-            wait.until(ExpectedConditions.elementToBeClickable(element));
+            getWait().until(ExpectedConditions.elementToBeClickable(element));
         } catch (Exception e) {
             extentLogger.error("Error while clicking webelement : " + e);
             extentLogger.fail("Error while clicking webelement : " + e);
@@ -537,10 +597,58 @@ public class BrowserUtils {
         return element;
     }
 
+    /*
+     * finds the element by index, scrolls it into view, focuses it and checks that it is visible and enabled
+     * (what elementToBeClickable checks) in one injected script, polled until GetData.DEFAULT_WAIT runs out.
+     * A cached element (arguments[3]) is reused when the DOM generation (arguments[4]) did not change.
+     */
+    private static final String LOCATE_AND_PREPARE = JsLocator.FUNCTIONS + LocatorCache.DOM_GENERATION +
+            "var cached = arguments[3], hit = !!cached && arguments[4] === token() && cached.isConnected;" +
+            "var e = hit ? cached : find(arguments[0], arguments[1])[arguments[2]];" +
+            "if (!e || !visible(e) || e.disabled) return null;" +
+            "e.scrollIntoView(false);" +
+            "if (typeof e.focus === 'function') e.focus();" +
+            "ignoreOwnChanges();" +
+            "return [e, token(), hit];";
+
+    private static WebElement locateAndPrepare(By by, JsLocator jsLocator, int index) {
+        JavascriptExecutor executor = (JavascriptExecutor) getDriver();
+        LocatorCache cache = LocatorCache.of(getDriver());
+        JavascriptException[] scriptError = new JavascriptException[1];
+        try {
+            List<?> result = Waiter.until("findElement", GetData.DEFAULT_WAIT * 1000L, () -> scriptError[0] != null, () -> {
+                LocatorCache.Entry cached = cache.get(by, index);
+                try {
+                    return (List<?>) executor.executeScript(LOCATE_AND_PREPARE, jsLocator.getKind(), jsLocator.getValue(), index,
+                            cached == null ? null : cached.getElement(), cached == null ? null : cached.getGeneration());
+                } catch (StaleElementReferenceException e) {
+                    // the cached element is gone, look it up again on the next poll
+                    cache.invalidate(by, index);
+                    return null;
+                } catch (JavascriptException e) {
+                    scriptError[0] = e;
+                    return null;
+                }
+            });
+            WebElement element = (WebElement) result.get(0);
+            if (Boolean.TRUE.equals(result.get(2))) {
+                LocatorCache.recordHit();
+            } else {
+                LocatorCache.recordMiss();
+                cache.put(by, index, element, (String) result.get(1));
+            }
+            return element;
+        } catch (TimeoutException e) {
+            if (scriptError[0] != null)
+                throw scriptError[0];
+            throw e;
+        }
+    }
+
     // var
     public static WebElement waitForElementClickable(WebElement element) {
 
-        return new WebDriverWait(driver, GetData.DEFAULT_WAIT).until(ExpectedConditions.elementToBeClickable(element));
+        return new WebDriverWait(getDriver(), GetData.DEFAULT_WAIT).until(ExpectedConditions.elementToBeClickable(element));
     }
 
     // var
@@ -552,13 +660,13 @@ public class BrowserUtils {
 
     public static WebElement waitForElement(WebElement element) {
 
-        return new WebDriverWait(driver, GetData.DEFAULT_WAIT).until(ExpectedConditions.visibilityOf(element));
+        return new WebDriverWait(getDriver(), GetData.DEFAULT_WAIT).until(ExpectedConditions.visibilityOf(element));
     }
 
     // var
     public static WebElement waitForElement(WebElement element, int seconds) {
 
-        return new WebDriverWait(driver, seconds).until(ExpectedConditions.visibilityOf(element));
+        return new WebDriverWait(getDriver(), seconds).until(ExpectedConditions.visibilityOf(element));
     }
 
     // yok
@@ -570,27 +678,15 @@ public class BrowserUtils {
     //yok
     public static void waitLoaderBox(int time) {
 
-        driver.manage()
-                .timeouts()
-                .implicitlyWait(0, TimeUnit.SECONDS);
-        if (driver.findElements(By.xpath("//div[starts-with(@class,'loader')]"))
-                .size() != 0) {
-            driver.manage()
-                    .timeouts()
-                    .implicitlyWait(time, TimeUnit.SECONDS);
-            driver.findElement(By.xpath("//div[@class='loader' and @style='display: none;']"));
-            driver.findElement(By.xpath("//div[@class='loader-box' and @style='display: none;']"));
-        }
-        driver.manage()
-                .timeouts()
-                .implicitlyWait(GetData.DEFAULT_WAIT, TimeUnit.SECONDS);
+        // resolved by an observer in the page as soon as every loader is hidden
+        LoaderWait.await(time);
     }
 
     //yok
     public static boolean isClickable(WebElement element) {
 
         try {
-            wait.until(ExpectedConditions.elementToBeClickable(element));
+            getWait().until(ExpectedConditions.elementToBeClickable(element));
             return true;
         } catch (Exception e) {
             return false;
@@ -598,6 +694,27 @@ public class BrowserUtils {
 
     }
 
+    /*
+     * name of the element in the step log; its text costs one more command,
+     * so it is only read at DEBUG level and the locator is logged otherwise
+     */
+    private static String describe(WebElement element, Object locator) {
+        if (!extentLogger.isDebugEnabled())
+            return String.valueOf(locator);
+        return textOf(element);
+    }
+
+    // best effort, also used for failure messages where the text is worth the command
+    private static String textOf(WebElement element) {
+        if (element == null)
+            return "";
+        try {
+            return element.getText();
+        } catch (WebDriverException e) {
+            return "";
+        }
+    }
+
     /*
      * Use this method click to element
      *
@@ -606,15 +723,17 @@ public class BrowserUtils {
      */
     public static void click(By by, int... index) {
 
-        WebElement element;
+        WebElement element = null;
         try {
             element = findElement(by, index);
-            String elemText = element.getText();
+            String elemText = describe(element, by);
             element.click();
-            extentLogger.info("Click Button : " + elemText);
+            ScreenshotRing.capture(() -> "Click Button : " + elemText);
+            extentLogger.info(() -> "Click Button : " + elemText);
         } catch (Exception e) {
-            extentLogger.error("Error while clicking webelement : " + e);
-            extentLogger.fail("Error while clicking webelement : " + e);
+            String message = "Error while clicking webelement " + textOf(element) + " : " + e;
+            extentLogger.error(message);
+            extentLogger.fail(message);
 
             throw new RuntimeException(e);
         }
@@ -628,19 +747,21 @@ public class BrowserUtils {
      */
     public static void click(WebElement element) {
 
-        String elemText = "";
+        String elemText = describe(element, element);
         try {
-            elemText = element.getText();
             element.click();
-            extentLogger.info("Click Button : " + elemText);
+            ScreenshotRing.capture(() -> "Click Button : " + elemText);
+            extentLogger.info(() -> "Click Button : " + elemText);
 
         } catch (WebDriverException e) {
-            ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView({block: 'center', inline: 'nearest'});arguments[0].focus();", element);
+            ((JavascriptExecutor) getDriver()).executeScript("arguments[0].scrollIntoView({block: 'center', inline: 'nearest'});arguments[0].focus();", element);
             element.click();
-            extentLogger.info("Click Button : " + elemText);
+            ScreenshotRing.capture(() -> "Click Button : " + elemText);
+            extentLogger.info(() -> "Click Button : " + elemText);
         } catch (Exception e) {
-            extentLogger.error("Error while clicking webelement : " + e);
-            extentLogger.fail("Error while clicking webelement : " + e);
+            String message = "Error while clicking webelement " + textOf(element) + " : " + e;
+            extentLogger.error(message);
+            extentLogger.fail(message);
 
             throw new RuntimeException(e);
         }
@@ -659,11 +780,12 @@ public class BrowserUtils {
             if (!clickable)
                 click(by);
             else {
-                wait.until(ExpectedConditions.visibilityOfElementLocated(by));
-                WebElement elem = wait.until(ExpectedConditions.visibilityOf(driver.findElement(by)));
-                String elemText = elem.getText();
+                getWait().until(ExpectedConditions.visibilityOfElementLocated(by));
+                WebElement elem = getWait().until(ExpectedConditions.visibilityOf(getDriver().findElement(by)));
+                String elemText = describe(elem, by);
                 elem.click();
-                extentLogger.info("Click Button : " + elemText);
+                ScreenshotRing.capture(() -> "Click Button : " + elemText);
+                extentLogger.info(() -> "Click Button : " + elemText);
             }
         } catch (Exception e) {
             extentLogger.error("Error while clicking webelement : " + e);
@@ -683,7 +805,7 @@ public class BrowserUtils {
     //var
     public static void waitAndClickElement(By element) {
         try {
-            wait.until(ExpectedConditions.elementToBeClickable(element)).click();
+            getWait().until(ExpectedConditions.elementToBeClickable(element)).click();
         } catch (Exception e) {
             extentLogger.error("Error while clicking web element: " + e);
             extentLogger.fail("Error while clicking web element: " + e);
@@ -695,7 +817,7 @@ public class BrowserUtils {
     //var
     public static void waitAndClickElement(WebElement element) {
         try {
-            wait.until(ExpectedConditions.elementToBeClickable(element)).click();
+            getWait().until(ExpectedConditions.elementToBeClickable(element)).click();
         } catch (Exception e) {
             extentLogger.error("Error while clicking web element: " + e);
             extentLogger.fail("Error while clicking web element: " + e);
@@ -722,11 +844,10 @@ public class BrowserUtils {
     public static void sendKeys(By by, String text, boolean pressEnter, int... index) {
 
         WebElement element = null;
-        String elemText = null;
         try {
             element = findElement(by, index);
+            String elemText = describe(element, by);
             if (element.isEnabled()) {
-                elemText = element.getText();
                 element.clear();
                 element.sendKeys(text);
                 if (pressEnter) {
@@ -734,10 +855,12 @@ public class BrowserUtils {
                     element.sendKeys(Keys.ENTER);
                 }
             }
-            extentLogger.info("Value : " + text + " - SendKeys : " + elemText);
+            ScreenshotRing.capture(() -> "Value : " + text + " - SendKeys : " + elemText);
+            extentLogger.info(() -> "Value : " + text + " - SendKeys : " + elemText);
         } catch (Exception e) {
-            extentLogger.error("Error while filling field : " + e);
-            extentLogger.fail("Error while filling field : " + e);
+            String message = "Error while filling field " + textOf(element) + " : " + e;
+            extentLogger.error(message);
+            extentLogger.fail(message);
 
             throw new RuntimeException(e);
         }
@@ -755,10 +878,9 @@ public class BrowserUtils {
     //gerek yok
     public static void sendKeys(WebElement element, String text, boolean pressEnter) {
 
-        String elemText = null;
         try {
+            String elemText = describe(element, element);
             if (element.isEnabled()) {
-                elemText = element.getText();
                 //				element.clear();
                 element.sendKeys(text);
                 if (pressEnter) {
@@ -766,10 +888,12 @@ public class BrowserUtils {
                     element.sendKeys(Keys.ENTER);
                 }
             }
-            extentLogger.info("Value : " + text + " - SendKeys : " + elemText);
+            ScreenshotRing.capture(() -> "Value : " + text + " - SendKeys : " + elemText);
+            extentLogger.info(() -> "Value : " + text + " - SendKeys : " + elemText);
         } catch (Exception e) {
-            extentLogger.error("Error while filling field : " + e);
-            extentLogger.fail("Error while filling field : " + e);
+            String message = "Error while filling field " + textOf(element) + " : " + e;
+            extentLogger.error(message);
+            extentLogger.fail(message);
 
             throw new RuntimeException(e);
         }
@@ -788,17 +912,18 @@ public class BrowserUtils {
     public static void sendKeys(By by, Keys key, int... index) {
 
         WebElement element = null;
-        String elemText = null;
         try {
             element = findElement(by, index);
+            String elemText = describe(element, by);
             if (element.isEnabled()) {
-                elemText = element.getText();
                 element.sendKeys(key);
             }
-            extentLogger.info("Value : " + key.toString() + " - SendKeys : " + elemText);
+            ScreenshotRing.capture(() -> "Value : " + key.name() + " - SendKeys : " + elemText);
+            extentLogger.info(() -> "Value : " + key.name() + " - SendKeys : " + elemText);
         } catch (Exception e) {
-            extentLogger.error("Error while filling field : " + e);
-            extentLogger.fail("Error while filling field : " + e);
+            String message = "Error while filling field " + textOf(element) + " : " + e;
+            extentLogger.error(message);
+            extentLogger.fail(message);
 
             throw new RuntimeException(e);
         }
@@ -856,17 +981,17 @@ public class BrowserUtils {
     public static void selectCombobox(By by, String value) {
 
         WebElement element = findElement(by);
-        String elemText = null;
         try {
+            String elemText = describe(element, by);
             if (element.isEnabled()) {
-                elemText = element.getText();
-                Select selectBox = new Select(driver.findElement(by));
+                Select selectBox = new Select(element);
                 selectBox.selectByValue(value);
             }
-            extentLogger.info("Value : " + value + " - SelectComboBox : " + elemText);
+            extentLogger.info(() -> "Value : " + value + " - SelectComboBox : " + elemText);
         } catch (Exception e) {
-            extentLogger.error("Error while filling field : " + e);
-            extentLogger.fail("Error while filling field : " + e);
+            String message = "Error while filling field " + textOf(element) + " : " + e;
+            extentLogger.error(message);
+            extentLogger.fail(message);
 
             throw new RuntimeException(e);
         }
@@ -875,17 +1000,17 @@ public class BrowserUtils {
     //yok
     public static void selectCombobox(WebElement element, String value) {
 
-        String elemText = null;
         try {
 //			if (element.isEnabled()) {
-            elemText = element.getText();
+            String elemText = describe(element, element);
             Select selectBox = new Select(element);
             selectBox.selectByValue(value);
             //	}
-            extentLogger.info("Value : " + value + " - SelectComboBox : " + elemText);
+            extentLogger.info(() -> "Value : " + value + " - SelectComboBox : " + elemText);
         } catch (Exception e) {
-            extentLogger.error("Error while filling field : " + e);
-            extentLogger.fail("Error while filling field : " + e);
+            String message = "Error while filling field " + textOf(element) + " : " + e;
+            extentLogger.error(message);
+            extentLogger.fail(message);
 
             throw new RuntimeException(e);
         }
@@ -895,8 +1020,8 @@ public class BrowserUtils {
     public static void moveToElement(By by) {
 
         try {
-            Actions action = new Actions(driver);
-            WebElement we = driver.findElement(by);
+            Actions action = new Actions(getDriver());
+            WebElement we = getDriver().findElement(by);
             action.moveToElement(we)
                     .build()
                     .perform();
@@ -924,10 +1049,10 @@ public class BrowserUtils {
         try {
             if (index.length == 0)
 
-                text = driver.findElement(by)
+                text = getDriver().findElement(by)
                         .getText();
             else
-                text = driver.findElements(by)
+                text = getDriver().findElements(by)
                         .get(index[0])
                         .getText();
         } catch (Exception e) {
@@ -965,7 +1090,7 @@ public class BrowserUtils {
             // waitLoaderBox(90);// , 40
             // Thread.sleep(1000);
             // driver.manage().timeouts().implicitlyWait(40, TimeUnit.SECONDS);
-            wait.until(ExpectedConditions.presenceOfAllElementsLocatedBy(by));
+            getWait().until(ExpectedConditions.presenceOfAllElementsLocatedBy(by));
             // wait.until(ExpectedConditions.presenceOfElementLocated(by));
         } catch (Exception e) {
             extentLogger.error("Error while waiting until element appears : " + e);
@@ -979,7 +1104,7 @@ public class BrowserUtils {
 
         List<WebElement> elements;
 
-        elements = wait.until(ExpectedConditions.presenceOfAllElementsLocatedBy(element));
+        elements = getWait().until(ExpectedConditions.presenceOfAllElementsLocatedBy(element));
 
         return elements;
     }
@@ -995,7 +1120,7 @@ public class BrowserUtils {
     protected static void untilElementDisappear(By by) {
 
         try {
-            wait.until(ExpectedConditions.invisibilityOfElementLocated(by));
+            getWait().until(ExpectedConditions.invisibilityOfElementLocated(by));
         } catch (Exception e) {
             extentLogger.error("Error while waiting until element disappears : " + e);
             extentLogger.fail("Error while waiting until element disappears : " + e);
@@ -1018,15 +1143,8 @@ public class BrowserUtils {
     public static boolean isElementExist(List<WebElement> elem, int timeSeconds) {
 
 
-        driver.manage()
-                .timeouts()
-                .implicitlyWait(timeSeconds, TimeUnit.SECONDS);
-        boolean isExist = !elem.isEmpty();
-        driver.manage()
-                .timeouts()
-                .implicitlyWait(GetData.DEFAULT_WAIT, TimeUnit.SECONDS);
-
-        return isExist;
+        // the default wait is set again only before the next find outside of these checks
+        return getTimeouts().withImplicitWait(timeSeconds, GetData.DEFAULT_WAIT, TimeUnit.SECONDS, () -> !elem.isEmpty());
     }
 
     public static boolean isElementExist(By by) {
@@ -1036,30 +1154,63 @@ public class BrowserUtils {
 
     public static boolean isElementExist(By by, int timeSeconds) {
 
-        driver.manage()
-                .timeouts()
-                .implicitlyWait(timeSeconds, TimeUnit.SECONDS);
-        boolean isExist = driver.findElements(by)
-                .size() > 0;
-        driver.manage()
-                .timeouts()
-                .implicitlyWait(GetData.DEFAULT_WAIT, TimeUnit.SECONDS);
-
-        return isExist;
+        return getTimeouts().withImplicitWait(timeSeconds, GetData.DEFAULT_WAIT, TimeUnit.SECONDS,
+                () -> getDriver().findElements(by).size() > 0);
     }
 
 
+    /*
+     * reads the attribute of the cached element (arguments[3]) when the DOM generation (arguments[4]) did not change,
+     * otherwise of a fresh match, so the check and the read are one command
+     */
+    private static final String LOCATE_AND_READ = JsLocator.FUNCTIONS + LocatorCache.DOM_GENERATION +
+            "var cached = arguments[3], hit = !!cached && arguments[4] === token() && cached.isConnected;" +
+            "var e = hit ? cached : find(arguments[0], arguments[1])[arguments[2]];" +
+            "if (!e) return null;" +
+            "return [e, token(), hit, attribute(e, arguments[5])];";
+
     public static String getProperty(By by, String expectedPropertyName, int... index) {
 
-        WebElement elem;
+        int position = index.length == 0 ? 0 : index[0];
+        JsLocator jsLocator = JsLocator.of(by);
+        if (jsLocator == null)
+            return findAt(by, position).getAttribute(expectedPropertyName);
 
-        if (index.length == 0)
-            elem = driver.findElement(by);
-        else
-            elem = driver.findElements(by)
-                    .get(index[0]);
+        LocatorCache cache = LocatorCache.of(getDriver());
+        LocatorCache.Entry cached = cache.get(by, position);
+        List<?> result;
+        try {
+            result = readCached(jsLocator, position, cached, expectedPropertyName);
+        } catch (StaleElementReferenceException e) {
+            // the cached element is gone, the driver rejected it before the script ran
+            cache.invalidate(by, position);
+            result = readCached(jsLocator, position, null, expectedPropertyName);
+        }
+        if (result == null) {
+            // not there yet, the driver lookup waits for it like before
+            LocatorCache.recordMiss();
+            return findAt(by, position).getAttribute(expectedPropertyName);
+        }
+        if (Boolean.TRUE.equals(result.get(2))) {
+            LocatorCache.recordHit();
+        } else {
+            LocatorCache.recordMiss();
+            cache.put(by, position, (WebElement) result.get(0), (String) result.get(1));
+        }
+        return (String) result.get(3);
+    }
 
-        return elem.getAttribute(expectedPropertyName);
+    private static List<?> readCached(JsLocator jsLocator, int position, LocatorCache.Entry cached, String name) {
+        return (List<?>) ((JavascriptExecutor) getDriver()).executeScript(LOCATE_AND_READ, jsLocator.getKind(), jsLocator.getValue(),
+                position, cached == null ? null : cached.getElement(), cached == null ? null : cached.getGeneration(), name);
+    }
+
+    // the match at the index, with the implicit wait of findElements
+    private static WebElement findAt(By by, int position) {
+        List<WebElement> matches = getDriver().findElements(by);
+        if (matches.size() <= position)
+            throw new NoSuchElementException("No element at index " + position + " for " + by);
+        return matches.get(position);
     }
 
     public static String getProperty(WebElement elem, String expectedPropertyName) {
@@ -1069,7 +1220,7 @@ public class BrowserUtils {
 
     public static void setValue(WebElement element, String value) {
 
-        ((JavascriptExecutor) driver).executeScript("arguments[0].value = '" + value + "';", element);
+        ((JavascriptExecutor) getDriver()).executeScript("arguments[0].value = '" + value + "';", element);
     }
 
 
@@ -1089,7 +1240,7 @@ public class BrowserUtils {
         try {
             int afterDay = Integer.parseInt(selectAfterDay);
 
-            List<WebElement> days = driver.findElements(By.xpath("//*[contains(@class,'CalendarDay CalendarDay_1 CalendarDay__default CalendarDay__default_2')]"));
+            List<WebElement> days = getDriver().findElements(By.xpath("//*[contains(@class,'CalendarDay CalendarDay_1 CalendarDay__default CalendarDay__default_2')]"));
             WebElement firstDay = days.get(afterDay);
             click(firstDay);
         } catch (Exception e) {
@@ -1104,26 +1255,37 @@ public class BrowserUtils {
     // gün parametresi seçilmek istenen gün bilgisi olmalı
     public static void selectDateByMonth(String ay, String gun) {
 
+        selectDateByMonth(toDate(ay, gun));
+    }
+
+    // takvimde doğrudan istenen aya gider ve günü seçer
+    public static void selectDateByMonth(LocalDate date) {
+
         try {
-            for (int i = 0; i <= 30; ) {
-                if (isElementExist(By.xpath("//div[@data-visible='true']//div//strong[text()='" + ay + "']"), 20)) {
-                    click(By.xpath("//*[contains(@aria-label,'" + ay + "')]//div[@class='CalendarDay__content' and text()='" + gun + "']"));
-                    break;
-                } else
-                    click(By.xpath("//div[@aria-label='Move forward to switch to the next month.']"));
-            }
+            DatePicker.select(date);
         } catch (Exception e) {
             extentLogger.error("Yanlis tarih secimi yapildi... : " + e);
             throw new RuntimeException(e);
         }
     }
 
+    // "Aralık 2021" + "5" -> 2021-12-05
+    private static LocalDate toDate(String ay, String gun) {
+
+        String[] parts = ay.trim().split("\\s+");
+        for (int month = 1; month <= 12; month++) {
+            if (selectmounth(month).equals(parts[0]))
+                return LocalDate.of(Integer.parseInt(parts[1]), month, Integer.parseInt(gun.trim()));
+        }
+        throw new IllegalArgumentException("Unknown month: " + ay);
+    }
+
     public static List<WebElement> findElements(By by) {
 
         List<WebElement> webElements = null;
         untilElementAppear(by);
         try {
-            webElements = driver.findElements(by);
+            webElements = getDriver().findElements(by);
         } catch (Exception e) {
             extentLogger.error("Error while listing webelements by css selector : " + e);
             extentLogger.fail("Error while listing webelements by css selector : " + e);
@@ -1137,13 +1299,13 @@ public class BrowserUtils {
 
     public static void selectDateByMonthMobile(String ay, String gun) {
 
+        selectDateByMonthMobile(toDate(ay, gun));
+    }
+
+    public static void selectDateByMonthMobile(LocalDate date) {
+
         try {
-            for (int i = 0; i <= 30; ) {
-                if (isElementExist(By.xpath("(//div[@data-visible='true']//div//strong[text()='" + ay + "'])[1]"), 20)) {
-                    click(By.xpath("(//*[contains(@aria-label,'" + ay + "')]//div[@class='CalendarDay__content' and text()='" + gun + "'])[1]"));
-                    break;
-                }
-            }
+            DatePicker.selectMobile(date);
         } catch (Exception e) {
             extentLogger.error("Yanlis tarih secimi yapildi... : " + e);
             throw new RuntimeException(e);
@@ -1153,9 +1315,9 @@ public class BrowserUtils {
     //frameler arası geçişi sağlar.
     public static void switchToFrame(By by) {
 
-        wait.until(ExpectedConditions.visibilityOfElementLocated(by));
-        WebElement iframe = wait.until(ExpectedConditions.visibilityOf(driver.findElement(by)));
-        driver.switchTo().frame(iframe);
+        getWait().until(ExpectedConditions.visibilityOfElementLocated(by));
+        WebElement iframe = getWait().until(ExpectedConditions.visibilityOf(getDriver().findElement(by)));
+        getDriver().switchTo().frame(iframe);
 
     }
 
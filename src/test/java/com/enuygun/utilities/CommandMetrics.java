@@ -0,0 +1,249 @@
+package com.enuygun.utilities;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/*
+ * Records every WebDriver command: its name, the locator, the test it ran for and its latency.
+ * The driver's command executor is decorated, so the driver keeps its own type
+ * (ChromeDriver stays a ChromeDriver) and nothing changes for the callers.
+ *
+ * Suite level data is kept in histograms per command and per command/locator,
+ * test level data as count/total/max per command. The test is the key set once by startTest.
+ * Only slow commands pay for a stack walk, they are also kept per command/caller/locator,
+ * the caller being the BrowserUtils method that issued them. Everything is written as JSON at the end of the run.
+ *
+ * configuration.properties:
+ *   commandMetrics=false          turns the instrumentation off
+ *   commandMetrics.slowMs=1000    commands at least this slow are attributed to their caller
+ */
+public class CommandMetrics {
+
+    private static final boolean enabled = ConfigurationReader.getBoolean("commandMetrics", true);
+
+    private static final Map<String, LatencyHistogram> byCommand = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> byLocator = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> slowByCaller = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, TestStats>> byTest = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<String> currentTest = new ThreadLocal<>();
+
+    private CommandMetrics() {
+
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Decorates the command executor of the driver with the recording one
+     *
+     * @param driver new browser session
+     */
+    public static void instrument(WebDriver driver) {
+        if (enabled)
+            decorate(driver, RecordingExecutor::new);
+    }
+
+    /**
+     * Replaces the command executor of the driver with a decorated one, also used by TimeoutManager
+     *
+     * @return false when the driver is not a RemoteWebDriver or the executor could not be replaced
+     */
+    static boolean decorate(WebDriver driver, UnaryOperator<CommandExecutor> decorator) {
+        if (!(driver instanceof RemoteWebDriver))
+            return false;
+        RemoteWebDriver remote = (RemoteWebDriver) driver;
+        try {
+            Method setter = RemoteWebDriver.class.getDeclaredMethod("setCommandExecutor", CommandExecutor.class);
+            setter.setAccessible(true);
+            setter.invoke(remote, decorator.apply(remote.getCommandExecutor()));
+            return true;
+        } catch (ReflectiveOperationException e) {
+            // decorations are optional, the driver keeps working without them
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Attributes the commands of the current thread to the test, until endTest()
+     */
+    public static void startTest(String testName) {
+        currentTest.set(testName);
+    }
+
+    public static void endTest() {
+        currentTest.remove();
+    }
+
+    static void record(Command command, long nanos) {
+        record(command.getName(), command.getParameters(), nanos);
+    }
+
+    /**
+     * Records the start of a browser session. The session is created while the driver is constructed,
+     * before its executor can be decorated, so Driver times the construction itself.
+     */
+    static void recordNewSession(long nanos) {
+        if (enabled)
+            record("newSession", Collections.emptyMap(), nanos);
+    }
+
+    private static void record(String name, Map<String, ?> parameters, long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        byCommand.computeIfAbsent(name, k -> new LatencyHistogram()).record(micros);
+
+        String locator = locator(parameters);
+        if (!locator.isEmpty())
+            byLocator.computeIfAbsent(name + locator, k -> new LatencyHistogram()).record(micros);
+        if (micros >= TimeUnit.MILLISECONDS.toMicros(ConfigurationReader.getLong("commandMetrics.slowMs", 1000)))
+            slowByCaller.computeIfAbsent(name + " | " + caller() + locator, k -> new LatencyHistogram()).record(micros);
+
+        String test = currentTest.get();
+        if (test != null)
+            byTest.computeIfAbsent(test, k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(name, k -> new TestStats()).add(micros);
+    }
+
+    // first frame of our own code that is not the instrumentation itself, normally a BrowserUtils method.
+    // Walking the stack costs more than the rest of record(), so it is only done for slow commands
+    private static String caller() {
+        StackTraceElement fallback = null;
+        for (StackTraceElement frame : Thread.currentThread().getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.equals(BrowserUtils.class.getName()))
+                return "BrowserUtils." + frame.getMethodName();
+            if (fallback == null && className.startsWith("com.enuygun.") && !className.startsWith(CommandMetrics.class.getName()))
+                fallback = frame;
+        }
+        if (fallback == null)
+            return "?";
+        return fallback.getClassName().substring(fallback.getClassName().lastIndexOf('.') + 1) + "." + fallback.getMethodName();
+    }
+
+    private static String locator(Map<String, ?> parameters) {
+        Object using = parameters.get("using");
+        Object value = parameters.get("value");
+        if (using == null || value == null)
+            return "";
+        return " | " + using + ": " + value;
+    }
+
+    /**
+     * Writes all collected data as JSON
+     *
+     * @param path file to write, e.g. test-output/command-metrics.json
+     */
+    public static void export(String path) {
+        if (!enabled)
+            return;
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("commands", summarize(byCommand));
+        json.put("locators", summarize(byLocator));
+        json.put("slowCallers", summarize(slowByCaller));
+        Map<String, Object> tests = new TreeMap<>();
+        for (Map.Entry<String, Map<String, TestStats>> test : byTest.entrySet()) {
+            Map<String, Object> commands = new TreeMap<>();
+            for (Map.Entry<String, TestStats> command : test.getValue().entrySet()) {
+                commands.put(command.getKey(), command.getValue().toMap());
+            }
+            tests.put(test.getKey(), commands);
+        }
+        json.put("tests", tests);
+        json.put("driverResolutionMs", DriverBinaryResolver.getResolutionMillis());
+        try {
+            File file = new File(path);
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            Files.write(file.toPath(), new Json().toJson(json).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Map<String, Object> summarize(Map<String, LatencyHistogram> histograms) {
+        Map<String, Object> summary = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            summary.put(entry.getKey(), entry.getValue().toMap());
+        }
+        return summary;
+    }
+
+    /**
+     * @return number of commands recorded so far, e.g. to compare two implementations of a step
+     */
+    public static long getCommandCount() {
+        long total = 0;
+        for (LatencyHistogram histogram : byCommand.values()) {
+            total += histogram.getCount();
+        }
+        return total;
+    }
+
+    /**
+     * @param command WebDriver command name, e.g. getElementText
+     * @return number of times the command was recorded so far
+     */
+    public static long getCommandCount(String command) {
+        LatencyHistogram histogram = byCommand.get(command);
+        return histogram == null ? 0 : histogram.getCount();
+    }
+
+    private static class TestStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMicros = new LongAdder();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        private void add(long micros) {
+            count.increment();
+            totalMicros.add(micros);
+            maxMicros.accumulateAndGet(micros, Math::max);
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", count.sum());
+            map.put("totalMs", totalMicros.sum() / 1000.0);
+            map.put("maxMs", maxMicros.get() / 1000.0);
+            return map;
+        }
+    }
+
+    private static class RecordingExecutor implements CommandExecutor {
+        private final CommandExecutor delegate;
+
+        private RecordingExecutor(CommandExecutor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Response execute(Command command) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return delegate.execute(command);
+            } finally {
+                record(command, System.nanoTime() - start);
+            }
+        }
+    }
+}
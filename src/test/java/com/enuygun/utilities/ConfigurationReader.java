@@ -1,33 +1,321 @@
 package com.enuygun.utilities;
 
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
+/*
+ * Configuration in layers, the first one that has the key wins:
+ *   1. system properties             -DsessionPool.size=8
+ *   2. environment variables         ENUYGUN_SESSIONPOOL_SIZE=8 (upper case, anything else than letters and digits is _;
+ *                                    the prefix keeps variables like BROWSER or PATH out)
+ *   3. the profile file              configuration-<profile>.properties, profile from config.profile in any layer above or below
+ *   4. configuration.properties
+ *
+ * The layers are read into an immutable Snapshot that is swapped as a whole, so readers never lock
+ * and never see half a reload. Typed values are parsed once per snapshot.
+ * With config.watch=true the files are watched and a new snapshot is published when one of them changes.
+ * An editor or a copy writes a file in several steps, so the reload waits until the files stayed the same
+ * for config.watchQuietMillis. A file that cannot be read or parsed is reported and the previous snapshot stays.
+ * The classes read their settings when they use them, so a reload applies to the next wait, command, flush etc.
+ * Only the keys that size a pool or a thread, or are resolved once, are fixed at startup:
+ *   commandMetrics, sessionPool, sessionPool.size, screenshot.writerThreads, screenshot.queueSize, screenshot.ring.frames,
+ *   screenshot.ring.frameKb, retry.budget, retry.threads, driverManifest, driverResolution, excel.cacheDir
+ *
+ * configuration.properties:
+ *   config.watch=false
+ *   config.watchQuietMillis=500
+ */
 public class ConfigurationReader {
-    private static Properties properties;
+
+    // what file to read
+    private static final Path path = Paths.get("configuration.properties").toAbsolutePath();
+
+    private static final AtomicReference<Snapshot> current = new AtomicReference<>(initial());
 
     static {
+        if (getBoolean("config.watch", false))
+            watch();
+    }
+
+    private ConfigurationReader() {
+
+    }
+
+    public static String get(String keyName) {
+        return current.get().get(keyName);
+    }
 
+    public static String get(String keyName, String defaultValue) {
+        String value = get(keyName);
+        return value == null ? defaultValue : value;
+    }
+
+    public static int getInt(String keyName, int defaultValue) {
+        return current.get().getInt(keyName, defaultValue);
+    }
+
+    public static long getLong(String keyName, long defaultValue) {
+        return current.get().getLong(keyName, defaultValue);
+    }
+
+    public static double getDouble(String keyName, double defaultValue) {
+        return current.get().getDouble(keyName, defaultValue);
+    }
+
+    public static boolean getBoolean(String keyName, boolean defaultValue) {
+        return current.get().getBoolean(keyName, defaultValue);
+    }
+
+    public static <E extends Enum<E>> E getEnum(String keyName, Class<E> type, E defaultValue) {
+        return current.get().getEnum(keyName, type, defaultValue);
+    }
+
+    /**
+     * @return the current configuration, to read several keys from the same version
+     */
+    public static Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Reads the files again and publishes the result
+     *
+     * @throws IOException if a file cannot be read or parsed, the previous configuration stays
+     */
+    public static void reload() throws IOException {
+        current.set(load());
+    }
+
+    // a broken file at startup leaves the defaults of the classes, a reload can fix it later
+    private static Snapshot initial() {
         try {
-            // what file to read
-            String path = "configuration.properties";
-            // read the file into java, finds the file using the string path
-            FileInputStream input = new FileInputStream(path);
+            return load();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new Snapshot(systemProperties(), System.getenv(), Collections.emptyMap(), Collections.emptyMap());
+        }
+    }
+
+    private static Snapshot load() throws IOException {
+        Map<String, String> system = systemProperties();
+        Map<String, String> environment = System.getenv();
+        Map<String, String> defaults = read(path);
+
+        String profile = system.get("config.profile");
+        if (profile == null)
+            profile = environment.get(environmentName("config.profile"));
+        if (profile == null)
+            profile = defaults.get("config.profile");
+        Map<String, String> profileValues = Collections.emptyMap();
+        if (profile != null && !profile.trim().isEmpty()) {
+            profileValues = read(path.resolveSibling("configuration-" + profile.trim() + ".properties"));
+        }
+
+        return new Snapshot(system, environment, profileValues, defaults);
+    }
+
+    private static Map<String, String> systemProperties() {
+        Map<String, String> system = new HashMap<>();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            system.put(name, System.getProperty(name));
+        }
+        return system;
+    }
+
+    private static Map<String, String> read(Path file) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        // read the file into java, finds the file using the path
+        try (FileInputStream input = new FileInputStream(file.toFile())) {
             // properties --> class that store properties in key / value format
-            properties = new Properties();
+            Properties properties = new Properties();
             // the values from the file input is loaded / fed in to the properties object
             properties.load(input);
+            for (String name : properties.stringPropertyNames()) {
+                values.put(name, properties.getProperty(name));
+            }
+        } catch (IllegalArgumentException e) {
+            // a malformed unicode escape
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+        return values;
+    }
 
-            input.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+    private static String environmentName(String keyName) {
+        return "ENUYGUN_" + keyName.toUpperCase(Locale.ROOT).replaceAll("[^A-Z0-9]", "_");
+    }
+
+    private static boolean isConfigurationFile(String name) {
+        return name.startsWith("configuration") && name.endsWith(".properties");
+    }
 
+    // true when one of the events is about a configuration file
+    private static boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (isConfigurationFile(String.valueOf(event.context())))
+                changed = true;
         }
+        key.reset();
+        return changed;
     }
 
-    public static String get(String keyName) {
+    // size, time and content of every configuration file, equal when nothing was written in between
+    private static String fingerprint() throws IOException {
+        StringBuilder state = new StringBuilder();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path.getParent(), "configuration*.properties")) {
+            for (Path file : files) {
+                try {
+                    state.append(file.getFileName()).append(':').append(Files.size(file)).append(':')
+                            .append(Files.getLastModifiedTime(file).toMillis()).append(':')
+                            .append(Arrays.hashCode(Files.readAllBytes(file))).append('\n');
+                } catch (IOException e) {
+                    // deleted or replaced right now
+                    state.append(file.getFileName()).append(":gone\n");
+                }
+            }
+        }
+        return state.toString();
+    }
 
-        return properties.getProperty(keyName);
+    private static void watch() {
+        long quietMillis = getLong("config.watchQuietMillis", 500);
+        Thread watcher = new Thread(() -> {
+            try (WatchService service = path.getFileSystem().newWatchService()) {
+                path.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                while (true) {
+                    if (!drain(service.take()))
+                        continue;
+                    // the first event comes with the first write, wait until the files are quiet and read the same twice
+                    String before = fingerprint();
+                    while (true) {
+                        WatchKey more;
+                        while ((more = service.poll(quietMillis, TimeUnit.MILLISECONDS)) != null) {
+                            drain(more);
+                        }
+                        String after = fingerprint();
+                        if (after.equals(before))
+                            break;
+                        before = after;
+                    }
+                    try {
+                        reload();
+                        System.out.println("configuration reloaded");
+                    } catch (IOException e) {
+                        System.err.println("configuration not reloaded, the previous one stays: " + e);
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // stopped
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
     }
 
+    /*
+     * one version of the configuration, never changed after it is published
+     */
+    public static class Snapshot {
+        // marks keys without a value in the caches, which cannot hold null; compared by identity
+        private static final String MISSING = new String("missing");
+
+        private final Map<String, String> system;
+        private final Map<String, String> environment;
+        private final Map<String, String> profile;
+        private final Map<String, String> defaults;
+
+        // caches of the lookups and parsed values of this version
+        private final Map<String, String> resolved = new ConcurrentHashMap<>();
+        private final Map<String, Object> ints = new ConcurrentHashMap<>();
+        private final Map<String, Object> longs = new ConcurrentHashMap<>();
+        private final Map<String, Object> doubles = new ConcurrentHashMap<>();
+        private final Map<String, Object> booleans = new ConcurrentHashMap<>();
+        private final Map<String, Object> enums = new ConcurrentHashMap<>();
+
+        private Snapshot(Map<String, String> system, Map<String, String> environment,
+                         Map<String, String> profile, Map<String, String> defaults) {
+            this.system = system;
+            this.environment = environment;
+            this.profile = profile;
+            this.defaults = defaults;
+        }
+
+        public String get(String keyName) {
+            String value = resolved.computeIfAbsent(keyName, this::resolve);
+            return value == MISSING ? null : value;
+        }
+
+        private String resolve(String keyName) {
+            String value = system.get(keyName);
+            if (value == null)
+                value = environment.get(environmentName(keyName));
+            if (value == null)
+                value = profile.get(keyName);
+            if (value == null)
+                value = defaults.get(keyName);
+            return value == null ? MISSING : value;
+        }
+
+        public int getInt(String keyName, int defaultValue) {
+            Object value = parsed(ints, keyName, Integer::valueOf);
+            return value == null ? defaultValue : (Integer) value;
+        }
+
+        public long getLong(String keyName, long defaultValue) {
+            Object value = parsed(longs, keyName, Long::valueOf);
+            return value == null ? defaultValue : (Long) value;
+        }
+
+        public double getDouble(String keyName, double defaultValue) {
+            Object value = parsed(doubles, keyName, Double::valueOf);
+            return value == null ? defaultValue : (Double) value;
+        }
+
+        public boolean getBoolean(String keyName, boolean defaultValue) {
+            Object value = parsed(booleans, keyName, Boolean::valueOf);
+            return value == null ? defaultValue : (Boolean) value;
+        }
+
+        // the constant of the upper-cased value, e.g. logLevel=debug is Level.DEBUG
+        public <E extends Enum<E>> E getEnum(String keyName, Class<E> type, E defaultValue) {
+            Object value = parsed(enums, type.getName() + ":" + keyName, keyName,
+                    text -> Enum.valueOf(type, text.toUpperCase(Locale.ROOT)));
+            return value == null ? defaultValue : type.cast(value);
+        }
+
+        private Object parsed(Map<String, Object> cache, String keyName, Function<String, Object> parser) {
+            return parsed(cache, keyName, keyName, parser);
+        }
+
+        private Object parsed(Map<String, Object> cache, String cacheKey, String keyName, Function<String, Object> parser) {
+            Object value = cache.get(cacheKey);
+            if (value != null)
+                return value == MISSING ? null : value;
+            String text = get(keyName);
+            value = text == null ? MISSING : parser.apply(text.trim());
+            cache.put(cacheKey, value);
+            return value == MISSING ? null : value;
+        }
+    }
 }
@@ -0,0 +1,163 @@
+package com.enuygun.utilities;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/*
+ * Streams a CSV file (RFC 4180: quoted fields may hold delimiters, "" and line breaks) record by record.
+ * The file is read through a FileChannel in large chunks and only the current record is kept.
+ *
+ * configuration.properties:
+ *   csv.delimiter=,
+ */
+public class CsvDataSource implements TestDataSource {
+
+    private static final int BUFFER_CHARS = 1 << 20;
+
+    private final char delimiter = ConfigurationReader.get("csv.delimiter", ",").charAt(0);
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_CHARS];
+    private int position;
+    private int limit;
+    private final List<String> columns;
+
+    public CsvDataSource(String path) {
+        try {
+            reader = Channels.newReader(FileChannel.open(Paths.get(path), StandardOpenOption.READ),
+                    StandardCharsets.UTF_8.newDecoder(), BUFFER_CHARS);
+            // a byte order mark is not part of the first column name, also when that name is quoted
+            if (read() != '\uFEFF' && limit > 0)
+                position--;
+            String[] header = readRecord();
+            List<String> names = new ArrayList<>();
+            if (header != null)
+                Collections.addAll(names, header);
+            columns = Collections.unmodifiableList(names);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<String> getColumnsNames() {
+        return columns;
+    }
+
+    @Override
+    public Iterator<String[]> rows() {
+        return new Iterator<String[]>() {
+            private String[] next;
+            private boolean finished;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !finished) {
+                    try {
+                        next = readRecord();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    finished = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public String[] next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                String[] row = next;
+                next = null;
+                // as wide as the header, like the rows of a sheet
+                String[] values = new String[columns.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = i < row.length ? row[i] : "";
+                }
+                return values;
+            }
+        };
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    // null at the end of the file, empty lines are skipped
+    private String[] readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean quoteInQuoted = false;
+        boolean started = false;
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                if (!started)
+                    return null;
+                break;
+            }
+            if (quoted) {
+                if (quoteInQuoted) {
+                    quoteInQuoted = false;
+                    if (c == '"') {
+                        // "" inside quotes is one quote
+                        field.append('"');
+                        continue;
+                    }
+                    quoted = false;
+                } else {
+                    if (c == '"')
+                        quoteInQuoted = true;
+                    else
+                        field.append((char) c);
+                    continue;
+                }
+            }
+            if (c == '\r')
+                continue;
+            if (c == '\n') {
+                if (!started)
+                    continue;
+                break;
+            }
+            started = true;
+            if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append((char) c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.enuygun.utilities;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * fixtures/data.csv: UTF-8 with a byte order mark and CRLF line ends, a quoted header name, a quoted delimiter,
+ * doubled quotes, an empty line, a quoted line break and a short last row.
+ */
+public class CsvDataSourceTest {
+
+    private static String fixture(String name) {
+        return Paths.get(System.getProperty("user.dir"), "src", "test", "resources", "fixtures", name).toString();
+    }
+
+    @Test
+    public void dropsTheByteOrderMark() {
+        try (CsvDataSource csv = new CsvDataSource(fixture("data.csv"))) {
+            Assert.assertEquals(csv.getColumnsNames(), Arrays.asList("name", "city", "note"));
+        }
+    }
+
+    @Test
+    public void readsQuotedFields() {
+        try (CsvDataSource csv = new CsvDataSource(fixture("data.csv"))) {
+            Iterator<String[]> rows = csv.rows();
+            Assert.assertEquals(rows.next(), new String[]{"Ayşe", "İstanbul", "plain"});
+            Assert.assertEquals(rows.next(), new String[]{"Mehmet", "Ankara, Çankaya", "said \"hi\""});
+            // the empty line is skipped, the line break inside quotes is part of the value
+            Assert.assertEquals(rows.next(), new String[]{"Zeynep", "İzmir", "two\r\nlines"});
+            Assert.assertEquals(rows.next(), new String[]{"Ali", "", ""});
+            Assert.assertFalse(rows.hasNext());
+        }
+    }
+
+    @Test
+    public void mapsRowsByHeader() {
+        try (TestDataSource data = TestDataSource.open(fixture("data.csv"), null)) {
+            Assert.assertTrue(data instanceof CsvDataSource);
+            List<Map<String, String>> rows = data.getDataList();
+            Assert.assertEquals(rows.size(), 4);
+            Assert.assertEquals(rows.get(1).get("city"), "Ankara, Çankaya");
+            Assert.assertEquals(rows.get(3).get("note"), "");
+        }
+    }
+
+    @Test
+    public void readsAFileWithoutByteOrderMark() throws IOException {
+        Path file = Files.createTempFile("plain", ".csv");
+        try {
+            Files.write(file, "a,b\n\"\"\"x\"\"\",\n".getBytes(StandardCharsets.UTF_8));
+            try (CsvDataSource csv = new CsvDataSource(file.toString())) {
+                Assert.assertEquals(csv.getColumnsNames(), Arrays.asList("a", "b"));
+                Assert.assertEquals(csv.getDataArrayWithoutFirstRow(), new String[][]{{"\"x\"", ""}});
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void readsAnEmptyFile() throws IOException {
+        Path file = Files.createTempFile("empty", ".csv");
+        try (CsvDataSource csv = new CsvDataSource(file.toString())) {
+            Assert.assertTrue(csv.getColumnsNames().isEmpty());
+            Assert.assertFalse(csv.rows().hasNext());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
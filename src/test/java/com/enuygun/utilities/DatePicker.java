@@ -0,0 +1,106 @@
+package com.enuygun.utilities;
+
+import com.enuygun.data.GetData;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebElement;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The react-dates calendar of the search forms.
+ * One async script reads the visible month headers ("Aralık 2021"), works out how far the target month is,
+ * presses "next month" that many times (waiting for each re-render) and returns the day cell,
+ * instead of probing the header with an implicit wait for every month.
+ * On mobile the months are listed under each other, so the last rendered month is scrolled into view instead.
+ */
+public class DatePicker {
+
+    private static final String NEXT_MONTH = "div[aria-label='Move forward to switch to the next month.']";
+
+    private static final String ADVANCE_AND_FIND_DAY =
+            "var target = arguments[0], targetMonth = arguments[1], day = arguments[2], budget = arguments[3]," +
+                    "    mobile = arguments[4], names = arguments[5], nextMonth = arguments[6], done = arguments[arguments.length - 1];" +
+                    "var start = Date.now();" +
+                    "var monthIndex = function (text) {" +
+                    "  var parts = text.trim().split(/\\s+/), month = names.indexOf(parts[0]);" +
+                    "  return parts.length !== 2 || month < 0 ? -1 : parseInt(parts[1], 10) * 12 + month;" +
+                    "};" +
+                    "var visibleMonths = function () {" +
+                    "  return Array.prototype.slice.call(document.querySelectorAll(\"div[data-visible='true'] strong\"))" +
+                    "    .map(function (e) { return { e: e, month: monthIndex(e.textContent) }; })" +
+                    "    .filter(function (h) { return h.month >= 0; });" +
+                    "};" +
+                    "var dayCell = function () {" +
+                    "  var months = document.querySelectorAll('[aria-label]');" +
+                    "  for (var i = 0; i < months.length; i++) {" +
+                    "    if (months[i].getAttribute('aria-label').indexOf(target) < 0) continue;" +
+                    "    var cells = months[i].querySelectorAll('div.CalendarDay__content');" +
+                    "    for (var j = 0; j < cells.length; j++) if (cells[j].textContent.trim() === day) return cells[j];" +
+                    "  }" +
+                    "  return null;" +
+                    "};" +
+                    "var step = function (previous) {" +
+                    "  if (Date.now() - start > budget) return done('Timed out looking for ' + target);" +
+                    "  var headers = visibleMonths();" +
+                    "  var key = headers.map(function (h) { return h.month; }).join(',');" +
+                    // calendar not rendered yet, or still re-rendering after the last move
+                    "  if (!headers.length || key === previous) return setTimeout(function () { step(previous); }, 20);" +
+                    "  var months = headers.map(function (h) { return h.month; });" +
+                    "  if (months.indexOf(targetMonth) >= 0) {" +
+                    "    var cell = dayCell();" +
+                    "    return cell ? done(cell) : done('Day ' + day + ' is not in ' + target);" +
+                    "  }" +
+                    "  if (targetMonth < Math.min.apply(null, months)) return done(target + ' is before the first month of the calendar');" +
+                    "  if (mobile) {" +
+                    "    headers[headers.length - 1].e.scrollIntoView();" +
+                    "  } else {" +
+                    "    var next = document.querySelector(nextMonth);" +
+                    "    if (!next) return done('Next month button was not found');" +
+                    "    next.click();" +
+                    "  }" +
+                    "  step(key);" +
+                    "};" +
+                    "step(null);";
+
+    private DatePicker() {
+
+    }
+
+    /**
+     * Opens the month of the date in the calendar and returns its day cell
+     *
+     * @param date   date to pick
+     * @param mobile true for the vertically scrolling mobile calendar
+     * @return the day cell, ready to be clicked
+     */
+    public static WebElement findDay(LocalDate date, boolean mobile) {
+        List<String> names = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            names.add(BrowserUtils.selectmounth(month));
+        }
+        String target = BrowserUtils.selectmounth(date.getMonthValue()) + " " + date.getYear();
+        int targetMonth = date.getYear() * 12 + date.getMonthValue() - 1;
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(GetData.DEFAULT_WAIT);
+
+        long start = System.nanoTime();
+        TimeoutManager.of(Driver.get()).atLeastScriptTimeout(timeoutMillis + 2000, TimeUnit.MILLISECONDS);
+        Object result = ((JavascriptExecutor) Driver.get()).executeAsyncScript(ADVANCE_AND_FIND_DAY,
+                target, targetMonth, String.valueOf(date.getDayOfMonth()), timeoutMillis, mobile, names, NEXT_MONTH);
+        Waiter.record("selectDate", start, start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), !(result instanceof WebElement));
+
+        if (!(result instanceof WebElement))
+            throw new RuntimeException(String.valueOf(result));
+        return (WebElement) result;
+    }
+
+    public static void select(LocalDate date) {
+        BrowserUtils.click(findDay(date, false));
+    }
+
+    public static void selectMobile(LocalDate date) {
+        BrowserUtils.click(findDay(date, true));
+    }
+}
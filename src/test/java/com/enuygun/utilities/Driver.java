@@ -1,85 +1,172 @@
 package com.enuygun.utilities;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.edge.EdgeDriver;
+import org.openqa.selenium.edge.EdgeDriverService;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.firefox.GeckoDriverService;
 import org.openqa.selenium.ie.InternetExplorerDriver;
+import org.openqa.selenium.ie.InternetExplorerDriverService;
 import org.openqa.selenium.safari.SafariDriver;
 
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class Driver {
 
     private Driver() {
 
     }
 
-    private static WebDriver driver;
+    // every TestNG worker thread gets its own browser session
+    private static final ThreadLocal<WebDriver> driverPool = new ThreadLocal<>();
+
+    // all live sessions, so nothing is leaked when a worker thread dies without closing its driver
+    private static final Set<WebDriver> activeDrivers = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(Driver::closeAllDrivers));
+    }
 
     public static WebDriver get() {
-        DriverOptions driverOptions = new DriverOptions();
-        // Test
+        WebDriver driver = driverPool.get();
         if (driver == null) {
-            // this line will tell which browser should open based on the value from properties file
-            String browser = ConfigurationReader.get("browser");
-            switch (browser) {
-                case "chrome":
-                    WebDriverManager.chromedriver().setup();
-                    driver = new ChromeDriver();
-                    break;
-                case "chrome-headless":
-                    WebDriverManager.chromedriver().setup();
-                    driver = new ChromeDriver(new ChromeOptions().setHeadless(true));
-                    break;
-                case "firefox":
-                    WebDriverManager.firefoxdriver().setup();
-                    driver = new FirefoxDriver();
-                    break;
-                case "firefox-headless":
-                    WebDriverManager.firefoxdriver().setup();
-                    driver = new FirefoxDriver(new FirefoxOptions().setHeadless(true));
-                    break;
-                case "ie":
-                    if (!System.getProperty("os.name").toLowerCase().contains("windows"))
-                        throw new WebDriverException("Your OS doesn't support Internet Explorer");
-                    WebDriverManager.iedriver().setup();
-                    driver = new InternetExplorerDriver();
-                    break;
-
-                case "edge":
-                    if (!System.getProperty("os.name").toLowerCase().contains("windows"))
-                        throw new WebDriverException("Your OS doesn't support Edge");
-                    WebDriverManager.edgedriver().setup();
-                    driver = new EdgeDriver();
-                    break;
-
-                case "safari":
-                    if (!System.getProperty("os.name").toLowerCase().contains("mac"))
-                        throw new WebDriverException("Your OS doesn't support Safari");
-                    WebDriverManager.getInstance(SafariDriver.class).setup();
-                    driver = new SafariDriver();
-                    break;
-
-                case "iPhone X":
-                    if (browser.equals("iPhone X") || browser.equals("iPhone 6/7/8") || browser.equals("iPad")) {
-                        WebDriverManager.chromedriver().driverVersion("95.0.4638.54").setup();
-                        ChromeOptions mobileOptions = driverOptions.mobileUp(browser);
-                        driver = new ChromeDriver(mobileOptions);
-                    }
-            }
+            driver = DriverPool.isEnabled() ? DriverPool.lease(Driver::createDriver) : createDriver();
+            activeDrivers.add(driver);
+            driverPool.set(driver);
+        }
+        return driver;
+    }
+
+    private static WebDriver createDriver() {
+        DriverOptions driverOptions = new DriverOptions();
+        WebDriver driver = null;
+        // this line will tell which browser should open based on the value from properties file
+        String browser = ConfigurationReader.get("browser");
+        // the session is created by the constructor, before the command executor can be instrumented
+        long start = System.nanoTime();
+        switch (browser) {
+            case "chrome":
+                driver = new ChromeDriver(chromeService(null), new ChromeOptions());
+                break;
+            case "chrome-headless":
+                driver = new ChromeDriver(chromeService(null), new ChromeOptions().setHeadless(true));
+                break;
+            case "firefox":
+                driver = new FirefoxDriver(geckoService(), new FirefoxOptions());
+                break;
+            case "firefox-headless":
+                driver = new FirefoxDriver(geckoService(), new FirefoxOptions().setHeadless(true));
+                break;
+            case "ie":
+                if (!System.getProperty("os.name").toLowerCase().contains("windows"))
+                    throw new WebDriverException("Your OS doesn't support Internet Explorer");
+                driver = new InternetExplorerDriver(new InternetExplorerDriverService.Builder()
+                        .usingDriverExecutable(new File(DriverBinaryResolver.resolve("ie"))).usingAnyFreePort().build());
+                break;
 
+            case "edge":
+                if (!System.getProperty("os.name").toLowerCase().contains("windows"))
+                    throw new WebDriverException("Your OS doesn't support Edge");
+                driver = new EdgeDriver(new EdgeDriverService.Builder()
+                        .usingDriverExecutable(new File(DriverBinaryResolver.resolve("edge"))).usingAnyFreePort().build());
+                break;
+
+            case "safari":
+                if (!System.getProperty("os.name").toLowerCase().contains("mac"))
+                    throw new WebDriverException("Your OS doesn't support Safari");
+                driver = new SafariDriver();
+                break;
+
+            case "iPhone X":
+                if (browser.equals("iPhone X") || browser.equals("iPhone 6/7/8") || browser.equals("iPad")) {
+                    ChromeOptions mobileOptions = driverOptions.mobileUp(browser);
+                    driver = new ChromeDriver(chromeService("95.0.4638.54"), mobileOptions);
+                }
         }
+        if (driver == null)
+            throw new WebDriverException("Unsupported browser: " + browser);
+        CommandMetrics.recordNewSession(System.nanoTime() - start);
+        CommandMetrics.instrument(driver);
+        // done once per session, pooled sessions keep their window size between tests
+        driver.manage().window().maximize();
 
         return driver;
     }
 
+    // every session starts its own driver process with the binary resolved for it
+    private static ChromeDriverService chromeService(String version) {
+        return new ChromeDriverService.Builder()
+                .usingDriverExecutable(new File(DriverBinaryResolver.resolve("chrome", version)))
+                .usingAnyFreePort()
+                .build();
+    }
+
+    private static GeckoDriverService geckoService() {
+        return new GeckoDriverService.Builder()
+                .usingDriverExecutable(new File(DriverBinaryResolver.resolve("firefox")))
+                .usingAnyFreePort()
+                .build();
+    }
+
     public static void closeDriver() {
+        WebDriver driver = driverPool.get();
         if (driver != null) {
-            driver.quit();
-            driver = null;
+            driverPool.remove();
+            activeDrivers.remove(driver);
+            LocatorCache.forget(driver);
+            if (DriverPool.isEnabled()) {
+                DriverPool.release(driver);
+            } else {
+                TimeoutManager.forget(driver);
+                driver.quit();
+            }
+        }
+    }
+
+    /**
+     * Quits the session of the current thread even when pooling is enabled,
+     * use it when the browser is in an unknown state
+     */
+    public static void discardDriver() {
+        WebDriver driver = driverPool.get();
+        if (driver != null) {
+            driverPool.remove();
+            activeDrivers.remove(driver);
+            TimeoutManager.forget(driver);
+            LocatorCache.forget(driver);
+            if (DriverPool.isEnabled()) {
+                DriverPool.discard(driver);
+            } else {
+                try {
+                    driver.quit();
+                } catch (WebDriverException e) {
+                    // a discarded session has usually crashed already
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Quits every session that is still open, whichever thread created it
+     */
+    public static void closeAllDrivers() {
+        for (WebDriver driver : activeDrivers) {
+            activeDrivers.remove(driver);
+            TimeoutManager.forget(driver);
+            LocatorCache.forget(driver);
+            try {
+                driver.quit();
+            } catch (WebDriverException e) {
+                e.printStackTrace();
+            }
         }
     }
 }
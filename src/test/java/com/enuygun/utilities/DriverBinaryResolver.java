@@ -0,0 +1,206 @@
+package com.enuygun.utilities;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.WebDriverException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Picks the driver binary (chromedriver, geckodriver...) once per JVM instead of on every browser launch.
+ *
+ * Lookup order:
+ *   1. a system property that is already set, e.g. -Dwebdriver.chrome.driver=/opt/chromedriver
+ *   2. the local manifest (driverManifest, default drivers/manifest.properties) with entries like
+ *        chrome=/opt/drivers/chromedriver
+ *        chrome@95.0.4638.54=/opt/drivers/chromedriver-95
+ *   3. WebDriverManager, unless driverResolution=offline. The downloaded path is written to the manifest
+ *      so the next run resolves without network access.
+ *
+ * The path is handed to the driver service of each session (see Driver), not set as a system property,
+ * so sessions with different pinned versions of the same browser can run side by side.
+ * The time spent resolving is printed with the suite statistics and exported with the command metrics.
+ */
+public class DriverBinaryResolver {
+
+    private static final String manifestPath = ConfigurationReader.get("driverManifest", "drivers/manifest.properties");
+    private static final boolean offline = "offline".equalsIgnoreCase(ConfigurationReader.get("driverResolution"));
+
+    private static final Map<String, FutureTask<String>> resolved = new ConcurrentHashMap<>();
+    private static final Map<String, Long> resolutionNanos = new ConcurrentHashMap<>();
+
+    private DriverBinaryResolver() {
+
+    }
+
+    public static String resolve(String browser) {
+        return resolve(browser, null);
+    }
+
+    /**
+     * Resolves the driver binary for the browser family. Threads asking for the same binary wait for the first one,
+     * the others are not blocked.
+     *
+     * @param browser chrome, firefox, ie or edge
+     * @param version pinned driver version, or null for the default one
+     * @return absolute path of the driver binary
+     */
+    public static String resolve(String browser, String version) {
+        String key = version == null ? browser : browser + "@" + version;
+        FutureTask<String> task = resolved.get(key);
+        if (task == null) {
+            FutureTask<String> created = new FutureTask<>(() -> {
+                long start = System.nanoTime();
+                String path = lookup(browser, version, key);
+                resolutionNanos.put(key, System.nanoTime() - start);
+                return path;
+            });
+            task = resolved.putIfAbsent(key, created);
+            if (task == null) {
+                task = created;
+                // the slow part runs outside of the map
+                task.run();
+            }
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while resolving the driver for " + key, e);
+        } catch (ExecutionException e) {
+            // the next session tries again
+            resolved.remove(key, task);
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new WebDriverException("Could not resolve the driver for " + key, e.getCause());
+        }
+    }
+
+    private static String lookup(String browser, String version, String key) {
+        String property = System.getProperty(systemProperty(browser));
+        if (version == null && property != null && new File(property).isFile())
+            return property;
+
+        Properties manifest = loadManifest();
+        String pinned = manifest.getProperty(key);
+        if (pinned != null) {
+            File binary = new File(pinned);
+            if (!binary.isFile()) {
+                String message = "Pinned driver for " + key + " is missing: " + binary.getAbsolutePath()
+                        + " (listed in " + new File(manifestPath).getAbsolutePath() + ")";
+                System.err.println(message);
+                throw new WebDriverException(message);
+            }
+            return binary.getAbsolutePath();
+        }
+
+        if (offline) {
+            String message = "No driver for " + key + " in " + new File(manifestPath).getAbsolutePath()
+                    + " and driverResolution=offline";
+            System.err.println(message);
+            throw new WebDriverException(message);
+        }
+
+        WebDriverManager manager = manager(browser);
+        if (version != null)
+            manager.driverVersion(version);
+        manager.setup();
+        String path = manager.getDownloadedDriverPath();
+        storeInManifest(key, path);
+        return path;
+    }
+
+    private static WebDriverManager manager(String browser) {
+        switch (browser) {
+            case "chrome":
+                return WebDriverManager.chromedriver();
+            case "firefox":
+                return WebDriverManager.firefoxdriver();
+            case "ie":
+                return WebDriverManager.iedriver();
+            case "edge":
+                return WebDriverManager.edgedriver();
+            default:
+                throw new WebDriverException("No driver binary is known for " + browser);
+        }
+    }
+
+    private static String systemProperty(String browser) {
+        switch (browser) {
+            case "chrome":
+                return "webdriver.chrome.driver";
+            case "firefox":
+                return "webdriver.gecko.driver";
+            case "ie":
+                return "webdriver.ie.driver";
+            case "edge":
+                return "webdriver.edge.driver";
+            default:
+                throw new WebDriverException("No driver binary is known for " + browser);
+        }
+    }
+
+    private static Properties loadManifest() {
+        Properties manifest = new Properties();
+        File file = new File(manifestPath);
+        if (file.isFile()) {
+            try (InputStream input = new FileInputStream(file)) {
+                manifest.load(input);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return manifest;
+    }
+
+    private static synchronized void storeInManifest(String key, String path) {
+        File file = new File(manifestPath);
+        Properties manifest = loadManifest();
+        manifest.setProperty(key, path);
+        if (file.getAbsoluteFile().getParentFile() != null)
+            file.getAbsoluteFile().getParentFile().mkdirs();
+        try (OutputStream output = new FileOutputStream(file)) {
+            manifest.store(output, "driver binaries resolved by DriverBinaryResolver");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return time spent resolving the driver, in milliseconds, or -1 if it was not resolved yet
+     */
+    public static long getResolutionMillis(String browser, String version) {
+        Long nanos = resolutionNanos.get(version == null ? browser : browser + "@" + version);
+        return nanos == null ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public static Map<String, Long> getResolutionNanos() {
+        return resolutionNanos;
+    }
+
+    /**
+     * @return milliseconds spent resolving each driver, for the JSON export
+     */
+    public static Map<String, Object> getResolutionMillis() {
+        Map<String, Object> millis = new TreeMap<>();
+        for (Map.Entry<String, Long> entry : resolutionNanos.entrySet()) {
+            millis.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+        }
+        return millis;
+    }
+
+    public static String getStatistics() {
+        return "Driver resolution (ms): " + getResolutionMillis();
+    }
+}
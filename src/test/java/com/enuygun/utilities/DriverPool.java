@@ -0,0 +1,289 @@
+package com.enuygun.utilities;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+ * Keeps warm browser sessions between test methods.
+ * A session is leased in @BeforeMethod (through Driver.get()), reset and given back in @AfterMethod
+ * (through Driver.closeDriver()) and only quit when it is unhealthy, too old or used too many times.
+ *
+ * configuration.properties:
+ *   sessionPool=true                  enables the pool
+ *   sessionPool.size=4                max sessions alive at the same time
+ *   sessionPool.maxUses=50            recycle a session after this many leases
+ *   sessionPool.maxAgeSeconds=900     recycle a session after this many seconds
+ *   sessionPool.leaseTimeoutSeconds=120
+ *   sessionPool.maxOrigins=5          recycle instead of reset when a test visited more origins than this
+ */
+public class DriverPool {
+
+    private static final boolean enabled = ConfigurationReader.getBoolean("sessionPool", false);
+    private static final int size = ConfigurationReader.getInt("sessionPool.size", 4);
+
+    private static final BlockingDeque<PooledSession> idle = new LinkedBlockingDeque<>();
+    private static final Map<WebDriver, PooledSession> leased = new ConcurrentHashMap<>();
+    private static final Semaphore permits = new Semaphore(size, true);
+
+    private static final AtomicLong leases = new AtomicLong();
+    private static final AtomicLong created = new AtomicLong();
+    private static final AtomicLong reused = new AtomicLong();
+    private static final AtomicLong recycled = new AtomicLong();
+    private static final AtomicLong unhealthy = new AtomicLong();
+    private static final AtomicLong totalLeaseWaitNanos = new AtomicLong();
+    private static final AtomicLong maxLeaseWaitNanos = new AtomicLong();
+
+    private DriverPool() {
+
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Takes a warm session from the pool or creates a new one when none is idle.
+     * Blocks while all sessions are leased.
+     *
+     * @param factory creates a new browser session
+     * @return a session owned by the caller until it is released
+     */
+    static WebDriver lease(Supplier<WebDriver> factory) {
+        long start = System.nanoTime();
+        int leaseTimeoutSeconds = ConfigurationReader.getInt("sessionPool.leaseTimeoutSeconds", 120);
+        try {
+            if (!permits.tryAcquire(leaseTimeoutSeconds, TimeUnit.SECONDS))
+                throw new WebDriverException("No browser session became available in " + leaseTimeoutSeconds + " seconds");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting for a browser session", e);
+        }
+        long waited = System.nanoTime() - start;
+        totalLeaseWaitNanos.addAndGet(waited);
+        maxLeaseWaitNanos.accumulateAndGet(waited, Math::max);
+        leases.incrementAndGet();
+
+        try {
+            PooledSession session;
+            while ((session = idle.pollFirst()) != null) {
+                if (session.isExpired() || !session.isHealthy()) {
+                    unhealthy.incrementAndGet();
+                    quit(session);
+                    continue;
+                }
+                reused.incrementAndGet();
+                break;
+            }
+            if (session == null) {
+                session = new PooledSession(factory.get());
+                created.incrementAndGet();
+            }
+            session.uses++;
+            leased.put(session.driver, session);
+            return session.driver;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Resets the session and puts it back to the pool, or quits it when it should be recycled
+     *
+     * @param driver session returned by lease
+     */
+    static void release(WebDriver driver) {
+        PooledSession session = leased.remove(driver);
+        if (session == null) {
+            quit(driver);
+            return;
+        }
+        try {
+            if (session.uses >= ConfigurationReader.getInt("sessionPool.maxUses", 50) || session.isExpired() || !reset(session)) {
+                recycled.incrementAndGet();
+                quit(session);
+            } else {
+                // most recently used first, so the warmest sessions stay in use
+                idle.offerFirst(session);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Quits a leased session instead of returning it, e.g. after the browser crashed
+     *
+     * @param driver session returned by lease
+     */
+    static void discard(WebDriver driver) {
+        PooledSession session = leased.remove(driver);
+        try {
+            recycled.incrementAndGet();
+            quit(driver);
+        } finally {
+            if (session != null)
+                permits.release();
+        }
+    }
+
+    /**
+     * Remembers an origin the leased session navigated to, its cookies and storage are cleared before the next lease.
+     * Cookies and storage can only be deleted from a page of their own origin.
+     *
+     * @param driver session returned by lease
+     * @param url    address the session navigated to
+     */
+    public static void visited(WebDriver driver, String url) {
+        PooledSession session = leased.get(driver);
+        if (session != null)
+            addOrigin(session, url);
+    }
+
+    // scheme://host[:port] of http(s) addresses, null for about:blank, data: and the like
+    private static String origin(String url) {
+        if (url == null)
+            return null;
+        try {
+            URI uri = new URI(url);
+            if (uri.getHost() == null || !("http".equals(uri.getScheme()) || "https".equals(uri.getScheme())))
+                return null;
+            return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() == -1 ? "" : ":" + uri.getPort());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /*
+     * brings a used session back to a clean state:
+     * extra windows closed, storage and cookies cleared on every origin the test visited, blank page loaded
+     */
+    private static boolean reset(PooledSession session) {
+        WebDriver driver = session.driver;
+        try {
+            Set<String> handles = driver.getWindowHandles();
+            Iterator<String> iterator = handles.iterator();
+            String main = iterator.next();
+            while (iterator.hasNext()) {
+                driver.switchTo().window(iterator.next());
+                addOrigin(session, driver.getCurrentUrl());
+                driver.close();
+            }
+            driver.switchTo().window(main);
+            driver.switchTo().defaultContent();
+
+            Set<String> origins = new HashSet<>(session.origins);
+            session.origins.clear();
+            String current = origin(driver.getCurrentUrl());
+            origins.remove(current);
+            // every origin costs a navigation, a session that went through many is cheaper to replace
+            if (origins.size() > ConfigurationReader.getInt("sessionPool.maxOrigins", 5))
+                return false;
+            if (current != null)
+                clearOrigin(driver);
+            for (String origin : origins) {
+                // a static resource is enough to get a document of the origin, its scripts do not run
+                driver.get(origin + "/favicon.ico");
+                clearOrigin(driver);
+            }
+            driver.get("about:blank");
+            return true;
+        } catch (WebDriverException e) {
+            unhealthy.incrementAndGet();
+            return false;
+        }
+    }
+
+    private static void addOrigin(PooledSession session, String url) {
+        String origin = origin(url);
+        if (origin != null)
+            session.origins.add(origin);
+    }
+
+    private static void clearOrigin(WebDriver driver) {
+        ((JavascriptExecutor) driver).executeScript(
+                "try { window.localStorage.clear(); } catch (e) {}" +
+                        "try { window.sessionStorage.clear(); } catch (e) {}");
+        driver.manage().deleteAllCookies();
+    }
+
+    private static void quit(PooledSession session) {
+        quit(session.driver);
+    }
+
+    // the per session state of the other helpers goes with the session
+    private static void quit(WebDriver driver) {
+        TimeoutManager.forget(driver);
+        LocatorCache.forget(driver);
+        try {
+            driver.quit();
+        } catch (WebDriverException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Quits idle sessions and prints pool statistics. Called at the end of the suite.
+     */
+    public static void shutdown() {
+        if (!enabled)
+            return;
+        PooledSession session;
+        while ((session = idle.pollFirst()) != null) {
+            quit(session);
+        }
+        System.out.println(getStatistics());
+    }
+
+    public static String getStatistics() {
+        long leaseCount = leases.get();
+        long avgWaitMillis = leaseCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLeaseWaitNanos.get() / leaseCount);
+        return "Session pool: size=" + size +
+                ", leases=" + leaseCount +
+                ", created=" + created.get() +
+                ", reused=" + reused.get() +
+                ", recycled=" + recycled.get() +
+                ", unhealthy=" + unhealthy.get() +
+                ", avgLeaseWaitMs=" + avgWaitMillis +
+                ", maxLeaseWaitMs=" + TimeUnit.NANOSECONDS.toMillis(maxLeaseWaitNanos.get());
+    }
+
+    private static class PooledSession {
+        private final WebDriver driver;
+        private final long createdAt = System.currentTimeMillis();
+        private final Set<String> origins = ConcurrentHashMap.newKeySet();
+        private int uses;
+
+        private PooledSession(WebDriver driver) {
+            this.driver = driver;
+        }
+
+        private boolean isExpired() {
+            long maxAgeMillis = TimeUnit.SECONDS.toMillis(ConfigurationReader.getInt("sessionPool.maxAgeSeconds", 900));
+            return System.currentTimeMillis() - createdAt > maxAgeMillis;
+        }
+
+        private boolean isHealthy() {
+            try {
+                return !driver.getWindowHandles().isEmpty();
+            } catch (WebDriverException e) {
+                return false;
+            }
+        }
+    }
+}
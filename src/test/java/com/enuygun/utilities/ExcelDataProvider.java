@@ -0,0 +1,105 @@
+package com.enuygun.utilities;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/*
+ * Lazy data provider rows for TestNG: the sheet is read while the tests run, so the first test starts
+ * as soon as the first row is parsed, whatever the size of the sheet.
+ *
+ *   @DataProvider(parallel = true)
+ *   public Iterator<Object[]> fares() {
+ *       return ExcelDataProvider.rows("src/test/resources/fares.xlsx", "Sheet1", row -> !row[0].isEmpty());
+ *   }
+ *
+ * The header row is skipped. Sharding splits the rows between workers (machines or suites):
+ * worker k of n gets data rows k, k + n, k + 2n ... The filter runs on the rows of the shard.
+ * next() and hasNext() are synchronized, TestNG may pull rows from several threads with parallel = true.
+ * The rows come from the TestDataSource of the file: xlsx sheets are streamed with XlsxStreamReader,
+ * csv and jsonl files are read record by record, and xls files, which have no streaming reader,
+ * are loaded by ExcelUtil and their rows read one at a time.
+ *
+ * configuration.properties (or -D / environment, see ConfigurationReader):
+ *   data.shard=0      index of this worker
+ *   data.shards=1     number of workers
+ */
+public class ExcelDataProvider implements Iterator<Object[]> {
+
+    private final String path;
+    private final String sheetName;
+    private final Predicate<String[]> filter;
+    private final int shard;
+    private final int shards;
+
+    private Iterator<String[]> rows;
+    private TestDataSource source;
+    private int index;
+    private Object[] next;
+    private boolean finished;
+
+    private ExcelDataProvider(String path, String sheetName, Predicate<String[]> filter, int shard, int shards) {
+        if (shards < 1 || shard < 0 || shard >= shards)
+            throw new IllegalArgumentException("Shard " + shard + " of " + shards + " does not exist");
+        this.path = path;
+        this.sheetName = sheetName;
+        this.filter = filter;
+        this.shard = shard;
+        this.shards = shards;
+    }
+
+    public static Iterator<Object[]> rows(String path, String sheetName) {
+        return rows(path, sheetName, row -> true);
+    }
+
+    public static Iterator<Object[]> rows(String path, String sheetName, Predicate<String[]> filter) {
+        return rows(path, sheetName, filter, ConfigurationReader.getInt("data.shard", 0), ConfigurationReader.getInt("data.shards", 1));
+    }
+
+    /**
+     * @param filter rows for which it returns false are skipped
+     * @param shard  index of this worker, from 0
+     * @param shards number of workers
+     */
+    public static Iterator<Object[]> rows(String path, String sheetName, Predicate<String[]> filter, int shard, int shards) {
+        return new ExcelDataProvider(path, sheetName, filter, shard, shards);
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        if (next == null && !finished)
+            advance();
+        return next != null;
+    }
+
+    @Override
+    public synchronized Object[] next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        Object[] row = next;
+        next = null;
+        return row;
+    }
+
+    private void advance() {
+        if (rows == null)
+            open();
+        while (rows.hasNext()) {
+            String[] row = rows.next();
+            if (index++ % shards != shard || !filter.test(row))
+                continue;
+            // a real Object[], TestNG may put other parameters into it
+            next = Arrays.copyOf(row, row.length, Object[].class);
+            return;
+        }
+        finished = true;
+        // nobody calls close() on a data provider, the file is released when the rows run out
+        source.close();
+    }
+
+    private void open() {
+        source = TestDataSource.open(path, sheetName);
+        rows = source.rows();
+    }
+}
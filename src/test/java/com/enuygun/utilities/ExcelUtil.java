@@ -4,42 +4,131 @@ package com.enuygun.utilities;
 import org.apache.poi.ss.usermodel.*;
 import org.testng.Assert;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 
 /*
  * This is a utility for reading from writing to excel files.
  * it works with xls and xlsx files.
+ * For large xlsx sheets that are only read, XlsxStreamReader gives the same data without loading the workbook.
+ *
+ * The workbook is loaded on first use. Until then getDataArray() and getDataArrayWithoutFirstRow()
+ * come from SheetCache, which keeps the parsed sheet between runs as long as the workbook does not change,
+ * so a data provider over an unchanged sheet does not parse the workbook at all.
+ * A missing sheet is therefore reported by the first read, not by the constructor.
+ * rows() streams an xlsx sheet that is not loaded with XlsxStreamReader (dates come as serial numbers there),
+ * otherwise it reads the rows of the loaded sheet one per next().
+ *
+ * With writeBehind the updates of setCellData are kept in memory and the file is written on flush()/close(),
+ * when excel.flushUpdates updates are pending, or at the latest excel.flushMillis after the oldest one
+ * (a background thread flushes, so updates are not left behind when no further setCellData comes).
+ * Updates still pending when the JVM exits are written by a shutdown hook.
+ * The file is always replaced atomically (temp file + rename) under a lock per file; if another
+ * ExcelUtil wrote the file in the meantime, it is read again and the pending updates are applied on top.
+ * Such a write is told by the size, the modification time and the CRC of the content, because
+ * two writes within the resolution of the modification time can leave it unchanged.
+ *
+ * configuration.properties:
+ *   excel.flushUpdates=500
+ *   excel.flushMillis=5000
  */
-public class ExcelUtil {
+public class ExcelUtil implements TestDataSource {
+
+    private static final Map<String, ReentrantLock> fileLocks = new ConcurrentHashMap<>();
+
+    // instances with pending updates, flushed by the shutdown hook
+    private static final Set<ExcelUtil> unflushed = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private static ScheduledExecutorService flusher;
+
     private Sheet workSheet;
     private Workbook workBook;
     private String path;
+    private final String sheetName;
+    private final boolean writeBehind;
+
+    private Map<String, Integer> columnIndexes;
+    private final List<Update> pending = new ArrayList<>();
+    private long oldestPending;
+    // the reader of the last rows() over an xlsx file, closed with this ExcelUtil
+    private XlsxStreamReader reader;
+    // size:modified:crc of the file as it was last read or written
+    private String loadedStamp;
 
     public ExcelUtil(String path, String sheetName) {
+        this(path, sheetName, false);
+    }
+
+    /**
+     * @param writeBehind true to collect the updates of setCellData and write them in batches
+     */
+    public ExcelUtil(String path, String sheetName, boolean writeBehind) {
         this.path = path;
-        try {
-            // Open the Excel file
-            FileInputStream ExcelFile = new FileInputStream(path);
+        this.sheetName = sheetName;
+        this.writeBehind = writeBehind;
+    }
+
+    // the sheet of the loaded workbook, loaded on first use
+    private Sheet sheet() {
+        if (workBook == null) {
+            try {
+                load();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return workSheet;
+    }
+
+    private void load() throws IOException {
+        File file = new File(path);
+        long modified = file.lastModified();
+        // Open the Excel file, the bytes that are parsed are also the ones the stamp is taken of
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        Workbook previous = workBook;
+        try (InputStream ExcelFile = new ByteArrayInputStream(bytes)) {
             // Access the required test data sheet
             workBook = WorkbookFactory.create(ExcelFile);
-            workSheet = workBook.getSheet(sheetName);
-            // check if sheet is null or not. null means  sheetname was wrong
-            Assert.assertNotNull(workSheet, "Sheet: \"" + sheetName + "\" does not exist\n");
-
-        } catch (Exception e) {
-            throw new RuntimeException(e);
         }
+        loadedStamp = stamp(bytes.length, modified, crc.getValue());
+        // the version read before another writer changed the file
+        if (previous != null)
+            previous.close();
+        workSheet = workBook.getSheet(sheetName);
+        // check if sheet is null or not. null means  sheetname was wrong
+        Assert.assertNotNull(workSheet, "Sheet: \"" + sheetName + "\" does not exist\n");
+        columnIndexes = null;
     }
 
     public String getCellData(int rowNum, int colNum) {
         Cell cell;
         try {
-            cell = workSheet.getRow(rowNum).getCell(colNum);
+            cell = sheet().getRow(rowNum).getCell(colNum);
             String cellData = cell.toString();
             return cellData;
         } catch (Exception e) {
@@ -48,11 +137,22 @@ public class ExcelUtil {
     }
 
     public String[][] getDataArray() {
+        // nothing read or changed yet, the cache has the same rows
+        if (workBook == null)
+            return SheetCache.getDataArray(path, sheetName, "ExcelUtil", this::readDataArray);
+        return readDataArray();
+    }
+
+    // the rows of the loaded workbook
+    String[][] readDataArray() {
 
-        String[][] data = new String[rowCount()][columnCount()];
+        // both counts walk the sheet, so they are read once
+        int rows = rowCount();
+        int columns = columnCount();
+        String[][] data = new String[rows][columns];
 
-        for (int i = 0; i < rowCount(); i++) {
-            for (int j = 0; j < columnCount(); j++) {
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
                 String value = getCellData(i, j);
                 data[i][j] = value;
             }
@@ -63,12 +163,19 @@ public class ExcelUtil {
 
     //this method will return data table as 2d array
     //so we need this format because of data provider.
+    @Override
     public String[][] getDataArrayWithoutFirstRow() {
+        if (workBook == null) {
+            String[][] data = getDataArray();
+            return Arrays.copyOfRange(data, Math.min(1, data.length), data.length);
+        }
 
-        String[][] data = new String[rowCount() - 1][columnCount()];
+        int rows = rowCount();
+        int columns = columnCount();
+        String[][] data = new String[rows - 1][columns];
 
-        for (int i = 1; i < rowCount(); i++) {
-            for (int j = 0; j < columnCount(); j++) {
+        for (int i = 1; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
                 String value = getCellData(i, j);
                 data[i - 1][j] = value;
             }
@@ -77,72 +184,238 @@ public class ExcelUtil {
 
     }
 
+    @Override
+    public synchronized Iterator<String[]> rows() {
+        if (reader != null)
+            reader.close();
+        reader = null;
+        if (workBook == null && path.toLowerCase().endsWith(".xlsx")) {
+            reader = new XlsxStreamReader(path, sheetName);
+            // the header
+            if (reader.hasNext())
+                reader.next();
+            return reader;
+        }
+        int rows = rowCount();
+        int columns = columnCount();
+        return new Iterator<String[]>() {
+            private int index = 1;
+
+            @Override
+            public boolean hasNext() {
+                return index < rows;
+            }
+
+            @Override
+            public String[] next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                String[] row = new String[columns];
+                for (int j = 0; j < columns; j++) {
+                    row[j] = getCellData(index, j);
+                }
+                index++;
+                return row;
+            }
+        };
+    }
+
+    // every row is a read-only SheetRow, see getRows()
+    @Override
     public List<Map<String, String>> getDataList() {
-        // get all columns
-        List<String> columns = getColumnsNames();
+        return new ArrayList<>(getRows());
+    }
+
+    public List<SheetRow> getRows() {
+        // all columns, shared by every row
+        SheetRow.Header header = new SheetRow.Header(getColumnsNames());
         // this will be returned
-        List<Map<String, String>> data = new ArrayList<>();
+        List<SheetRow> data = new ArrayList<>();
 
-        for (int i = 1; i < rowCount(); i++) {
+        int rows = rowCount();
+        int columns = columnCount();
+        for (int i = 1; i < rows; i++) {
             // get each row
-            Row row = workSheet.getRow(i);
-            // create map of the row using the column and value
-            // column map key, cell value --> map bvalue
-            Map<String, String> rowMap = new HashMap<String, String>();
+            Row row = sheet().getRow(i);
+            // cell value at the index of its column, cells that do not exist stay null
+            String[] values = new String[columns];
             for (Cell cell : row) {
                 int columnIndex = cell.getColumnIndex();
-                rowMap.put(columns.get(columnIndex), cell.toString());
+                if (columnIndex < columns)
+                    values[columnIndex] = cell.toString();
             }
 
-            data.add(rowMap);
+            data.add(new SheetRow(header, values));
         }
 
         return data;
     }
 
+    @Override
     public List<String> getColumnsNames() {
         List<String> columns = new ArrayList<>();
 
-        for (Cell cell : workSheet.getRow(0)) {
+        for (Cell cell : sheet().getRow(0)) {
             columns.add(cell.toString());
         }
         return columns;
     }
 
-    public void setCellData(String value, int rowNum, int colNum) {
-        Cell cell;
-        Row row;
-
+    public synchronized void setCellData(String value, int rowNum, int colNum) {
         try {
-            row = workSheet.getRow(rowNum);
-            cell = row.getCell(colNum);
-
-            if (cell == null) {
-                cell = row.createCell(colNum);
-                cell.setCellValue(value);
-            } else {
-                cell.setCellValue(value);
-            }
-            FileOutputStream fileOut = new FileOutputStream(path);
-            workBook.write(fileOut);
-
-            fileOut.close();
+            Update update = new Update(value, rowNum, colNum);
+            apply(update);
+            if (pending.isEmpty())
+                oldestPending = System.nanoTime();
+            pending.add(update);
+            ConfigurationReader.Snapshot config = ConfigurationReader.snapshot();
+            long flushMillis = config.getInt("excel.flushMillis", 5000);
+            if (!writeBehind || pending.size() >= config.getInt("excel.flushUpdates", 500)
+                    || System.nanoTime() - oldestPending >= TimeUnit.MILLISECONDS.toNanos(flushMillis))
+                flush();
+            else if (pending.size() == 1)
+                scheduleFlush(flushMillis);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    public void setCellData(String value, String columnName, int row) {
-        int column = getColumnsNames().indexOf(columnName);
+    public synchronized void setCellData(String value, String columnName, int row) {
+        if (columnIndexes == null) {
+            columnIndexes = new HashMap<>();
+            List<String> columns = getColumnsNames();
+            for (int i = columns.size() - 1; i >= 0; i--) {
+                // first column wins, like indexOf
+                columnIndexes.put(columns.get(i), i);
+            }
+        }
+        Integer column = columnIndexes.get(columnName);
+        if (column == null)
+            throw new IllegalArgumentException("Column: \"" + columnName + "\" does not exist in sheet \"" + sheetName + "\"");
         setCellData(value, row, column);
     }
 
+    private void apply(Update update) {
+        Row row = sheet().getRow(update.row);
+        if (row == null)
+            row = sheet().createRow(update.row);
+        Cell cell = row.getCell(update.column);
+        if (cell == null)
+            cell = row.createCell(update.column);
+        cell.setCellValue(update.value);
+        if (update.row == 0)
+            columnIndexes = null;
+    }
+
+    // writes the updates excel.flushMillis after the first one, unless a flush came earlier
+    private void scheduleFlush(long flushMillis) {
+        unflushed.add(this);
+        flusher().schedule(() -> {
+            synchronized (this) {
+                if (!pending.isEmpty() && System.nanoTime() - oldestPending >= TimeUnit.MILLISECONDS.toNanos(flushMillis))
+                    flush();
+            }
+        }, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService flusher() {
+        if (flusher == null) {
+            flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "excel-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                for (ExcelUtil excel : unflushed) {
+                    excel.flush();
+                }
+            }, "excel-flush-on-exit"));
+        }
+        return flusher;
+    }
+
+    /**
+     * Writes the pending updates to the file
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty())
+            return;
+        ReentrantLock lock = fileLocks.computeIfAbsent(new File(path).getAbsolutePath(), k -> new ReentrantLock());
+        lock.lock();
+        try {
+            if (!stampOf(new File(path)).equals(loadedStamp)) {
+                // written by someone else since we read it, keep their changes too
+                load();
+                for (Update update : pending) {
+                    apply(update);
+                }
+            }
+            File destination = new File(path).getAbsoluteFile();
+            Path temp = Files.createTempFile(destination.getParentFile().toPath(), destination.getName(), ".tmp");
+            CRC32 crc = new CRC32();
+            long size;
+            try {
+                try (OutputStream fileOut = new CheckedOutputStream(Files.newOutputStream(temp), crc)) {
+                    workBook.write(fileOut);
+                }
+                size = Files.size(temp);
+                Files.move(temp, destination.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            loadedStamp = stamp(size, destination.lastModified(), crc.getValue());
+            pending.clear();
+            unflushed.remove(this);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String stamp(long size, long modified, long crc) {
+        return size + ":" + modified + ":" + crc;
+    }
+
+    private static String stampOf(File file) throws IOException {
+        long modified = file.lastModified();
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (InputStream in = new CheckedInputStream(new FileInputStream(file), crc)) {
+            byte[] buffer = new byte[1 << 16];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                size += read;
+            }
+        }
+        return stamp(size, modified, crc.getValue());
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        if (reader != null)
+            reader.close();
+        reader = null;
+    }
+
     public int columnCount() {
-        return workSheet.getRow(0).getLastCellNum();
+        return sheet().getRow(0).getLastCellNum();
     }
 
     public int rowCount() {
-        return workSheet.getLastRowNum() + 1;
+        return sheet().getLastRowNum() + 1;
+    }
+
+    private static class Update {
+        private final String value;
+        private final int row;
+        private final int column;
+
+        private Update(String value, int row, int column) {
+            this.value = value;
+            this.row = row;
+            this.column = column;
+        }
     }
 
 
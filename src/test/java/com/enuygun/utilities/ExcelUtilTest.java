@@ -0,0 +1,93 @@
+package com.enuygun.utilities;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+public class ExcelUtilTest {
+
+    private Path directory;
+    private String path;
+
+    // header "name, city" and one row
+    @BeforeMethod
+    public void writeFixture() throws IOException {
+        directory = Files.createTempDirectory("excel-util");
+        path = directory.resolve("data.xlsx").toString();
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(new File(path).toPath())) {
+            Sheet sheet = workbook.createSheet("Data");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("name");
+            header.createCell(1).setCellValue("city");
+            Row first = sheet.createRow(1);
+            first.createCell(0).setCellValue("Ayşe");
+            first.createCell(1).setCellValue("İzmir");
+            workbook.write(out);
+        }
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteFixture() throws IOException {
+        for (File file : directory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void writesByColumnName() {
+        new ExcelUtil(path, "Data").setCellData("Ankara", "city", 1);
+        Assert.assertEquals(new ExcelUtil(path, "Data").getCellData(1, 1), "Ankara");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*\"town\" does not exist.*")
+    public void rejectsAnUnknownColumnName() {
+        new ExcelUtil(path, "Data").setCellData("Ankara", "town", 1);
+    }
+
+    @Test
+    public void streamsRowsUntilTheSheetIsLoaded() {
+        ExcelUtil excel = new ExcelUtil(path, "Data", true);
+        Iterator<String[]> streamed = excel.rows();
+        Assert.assertEquals(streamed.next(), new String[]{"Ayşe", "İzmir"});
+        Assert.assertFalse(streamed.hasNext());
+
+        // a pending update is only in the loaded sheet
+        excel.setCellData("Ankara", 1, 1);
+        Iterator<String[]> loaded = excel.rows();
+        Assert.assertEquals(loaded.next(), new String[]{"Ayşe", "Ankara"});
+        Assert.assertFalse(loaded.hasNext());
+        excel.close();
+    }
+
+    @Test
+    public void keepsTheChangesOfAnotherWriterWithTheSameModificationTime() {
+        File file = new File(path);
+        ExcelUtil first = new ExcelUtil(path, "Data", true);
+        // loads the workbook
+        Assert.assertEquals(first.getCellData(1, 0), "Ayşe");
+        long modified = file.lastModified();
+
+        new ExcelUtil(path, "Data").setCellData("Ankara", 1, 1);
+        // a second write within the resolution of the modification time
+        Assert.assertTrue(file.setLastModified(modified));
+
+        first.setCellData("Mehmet", 2, 0);
+        first.flush();
+
+        ExcelUtil excel = new ExcelUtil(path, "Data");
+        Assert.assertEquals(excel.getCellData(1, 1), "Ankara");
+        Assert.assertEquals(excel.getCellData(2, 0), "Mehmet");
+    }
+}
@@ -0,0 +1,93 @@
+package com.enuygun.utilities;
+
+import org.openqa.selenium.By;
+
+/*
+ * Translates a Selenium By into something an injected script can resolve with the DOM API,
+ * so scripts can look elements up themselves instead of receiving them from findElements.
+ * Locators that have no direct DOM equivalent (linkText, chained...) are not translated,
+ * callers then fall back to the regular WebDriver path.
+ */
+public class JsLocator {
+
+    /*
+     * prefix for scripts: defines find(kind, value) returning an array of elements,
+     * visible(element) following the same rules as WebElement.isDisplayed() for the common cases
+     * and attribute(element, name) reading a property or attribute like WebElement.getAttribute()
+     */
+    public static final String FUNCTIONS =
+            "var find = function (kind, value) {" +
+                    "  var list;" +
+                    "  switch (kind) {" +
+                    "    case 'css': list = document.querySelectorAll(value); break;" +
+                    "    case 'id': list = document.querySelectorAll('#' + CSS.escape(value)); break;" +
+                    "    case 'class': list = document.getElementsByClassName(value); break;" +
+                    "    case 'name': list = document.getElementsByName(value); break;" +
+                    "    case 'tag': list = document.getElementsByTagName(value); break;" +
+                    "    case 'xpath':" +
+                    "      var snapshot = document.evaluate(value, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);" +
+                    "      var nodes = [];" +
+                    "      for (var i = 0; i < snapshot.snapshotLength; i++) nodes.push(snapshot.snapshotItem(i));" +
+                    "      return nodes;" +
+                    "  }" +
+                    "  return Array.prototype.slice.call(list);" +
+                    "};" +
+                    "var visible = function (e) {" +
+                    "  if (!e.isConnected) return false;" +
+                    "  var style = window.getComputedStyle(e);" +
+                    "  if (style.visibility === 'hidden' || style.visibility === 'collapse' || style.opacity === '0') return false;" +
+                    "  return !!(e.offsetWidth || e.offsetHeight || e.getClientRects().length);" +
+                    "};" +
+                    "var attribute = function (e, name) {" +
+                    "  var p = e[name];" +
+                    "  if (typeof p === 'boolean') return p ? 'true' : null;" +
+                    "  if (p !== undefined && p !== null && typeof p !== 'object' && typeof p !== 'function') return String(p);" +
+                    "  return e.getAttribute(name);" +
+                    "};";
+
+    private final String kind;
+    private final String value;
+
+    private JsLocator(String kind, String value) {
+        this.kind = kind;
+        this.value = value;
+    }
+
+    /**
+     * @param by locator to translate
+     * @return the translated locator, or null when it has no DOM equivalent
+     */
+    public static JsLocator of(By by) {
+        // Selenium prints locators as "By.xpath: //div"
+        String text = by.toString();
+        int separator = text.indexOf(": ");
+        if (!text.startsWith("By.") || separator < 0)
+            return null;
+        String type = text.substring(3, separator);
+        String value = text.substring(separator + 2);
+        switch (type) {
+            case "cssSelector":
+                return new JsLocator("css", value);
+            case "xpath":
+                return new JsLocator("xpath", value);
+            case "id":
+                return new JsLocator("id", value);
+            case "className":
+                return new JsLocator("class", value);
+            case "name":
+                return new JsLocator("name", value);
+            case "tagName":
+                return new JsLocator("tag", value);
+            default:
+                return null;
+        }
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
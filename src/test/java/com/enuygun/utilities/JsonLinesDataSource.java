@@ -0,0 +1,129 @@
+package com.enuygun.utilities;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonInput;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/*
+ * Streams a JSON lines file: one flat JSON object per line, blank lines are skipped.
+ * The keys of the first object are the columns; a key missing from a later object is "",
+ * keys that are not in the first object are ignored. Numbers, booleans and nested values are given as their text.
+ */
+public class JsonLinesDataSource implements TestDataSource {
+
+    private static final int BUFFER_CHARS = 1 << 20;
+    private static final Json json = new Json();
+
+    private final BufferedReader reader;
+    private final List<String> columns;
+    private Map<String, String> first;
+
+    public JsonLinesDataSource(String path) {
+        try {
+            reader = new BufferedReader(Channels.newReader(FileChannel.open(Paths.get(path), StandardOpenOption.READ),
+                    StandardCharsets.UTF_8.newDecoder(), BUFFER_CHARS), BUFFER_CHARS);
+            first = readRecord();
+            columns = first == null ? Collections.<String>emptyList()
+                    : Collections.unmodifiableList(new ArrayList<>(first.keySet()));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<String> getColumnsNames() {
+        return columns;
+    }
+
+    @Override
+    public Iterator<String[]> rows() {
+        return new Iterator<String[]>() {
+            private Map<String, String> next;
+            private boolean finished;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !finished) {
+                    if (first != null) {
+                        // the first record was read for the column names
+                        next = first;
+                        first = null;
+                    } else {
+                        try {
+                            next = readRecord();
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                    finished = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public String[] next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                String[] values = new String[columns.size()];
+                for (int i = 0; i < values.length; i++) {
+                    String value = next.get(columns.get(i));
+                    values[i] = value == null ? "" : value;
+                }
+                next = null;
+                return values;
+            }
+        };
+    }
+
+    // keys in the order of the line, null at the end of the file
+    private Map<String, String> readRecord() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null)
+                return null;
+        } while (line.trim().isEmpty());
+
+        Map<String, String> record = new LinkedHashMap<>();
+        try (JsonInput input = json.newInput(new StringReader(line))) {
+            input.beginObject();
+            while (input.hasNext()) {
+                String name = input.nextName();
+                Object value = input.read(Object.class);
+                record.put(name, value == null ? null : text(value));
+            }
+            input.endObject();
+        }
+        return record;
+    }
+
+    private static String text(Object value) {
+        if (value instanceof String || value instanceof Number || value instanceof Boolean)
+            return String.valueOf(value);
+        return json.toJson(value);
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.enuygun.utilities;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * fixtures/data.jsonl: a blank line, a key missing from a later object, a key only a later object has,
+ * numbers, booleans, null and a nested array.
+ */
+public class JsonLinesDataSourceTest {
+
+    private static String fixture(String name) {
+        return Paths.get(System.getProperty("user.dir"), "src", "test", "resources", "fixtures", name).toString();
+    }
+
+    @Test
+    public void takesTheColumnsFromTheFirstObject() {
+        try (JsonLinesDataSource json = new JsonLinesDataSource(fixture("data.jsonl"))) {
+            Assert.assertEquals(json.getColumnsNames(), Arrays.asList("name", "age", "member"));
+        }
+    }
+
+    @Test
+    public void readsEveryObject() {
+        try (JsonLinesDataSource json = new JsonLinesDataSource(fixture("data.jsonl"))) {
+            Iterator<String[]> rows = json.rows();
+            Assert.assertEquals(rows.next(), new String[]{"Ayşe", "30", "true"});
+            // no age, "extra" is not a column
+            Assert.assertEquals(rows.next(), new String[]{"Mehmet", "", "false"});
+            Assert.assertEquals(rows.next(), new String[]{"Zeynep", "27.5", ""});
+            Assert.assertFalse(rows.hasNext());
+        }
+    }
+
+    @Test
+    public void mapsRowsByHeader() {
+        try (TestDataSource data = TestDataSource.open(fixture("data.jsonl"), null)) {
+            Assert.assertTrue(data instanceof JsonLinesDataSource);
+            List<Map<String, String>> rows = data.getDataList();
+            Assert.assertEquals(rows.size(), 3);
+            Assert.assertEquals(rows.get(0).get("name"), "Ayşe");
+            Assert.assertNull(rows.get(0).get("tags"));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.enuygun.utilities;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void isEmptyAtFirst() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.getValueAtPercentile(99), 0);
+        Assert.assertEquals(histogram.toMap().get("meanMs"), 0.0);
+    }
+
+    @Test
+    public void isExactBelowEightMicroseconds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 8; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(histogram.getValueAtPercentile(50), 3);
+        Assert.assertEquals(histogram.getValueAtPercentile(100), 7);
+    }
+
+    @Test
+    public void staysWithinTheBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9}) {
+            long exact = (long) (percentile * 1000);
+            long value = histogram.getValueAtPercentile(percentile);
+            Assert.assertTrue(value >= exact && value <= exact * 1.125, percentile + ": " + value + " for " + exact);
+        }
+        Assert.assertEquals(histogram.getValueAtPercentile(100), 100000);
+    }
+
+    @Test
+    public void neverReportsMoreThanTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        Assert.assertEquals(histogram.getValueAtPercentile(99), 1000);
+        Assert.assertEquals(histogram.getMaxMicros(), 1000);
+    }
+
+    @Test
+    public void clampsNegativeAndHugeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE / 2);
+        Assert.assertEquals(histogram.getValueAtPercentile(50), 0);
+        Assert.assertEquals(histogram.getValueAtPercentile(100), Long.MAX_VALUE / 2);
+    }
+
+    @Test
+    public void keepsTheLargestBucketApartFromLongerValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long largest = (1L << 33) - 1;
+        histogram.record(largest);
+        histogram.record(Long.MAX_VALUE / 2);
+        Assert.assertEquals(histogram.getValueAtPercentile(50), largest);
+        Assert.assertEquals(histogram.getValueAtPercentile(100), Long.MAX_VALUE / 2);
+    }
+
+    @Test
+    public void summarizesInMilliseconds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.record(3000);
+        Map<String, Object> summary = histogram.toMap();
+        Assert.assertEquals(summary.get("count"), 2L);
+        Assert.assertEquals(summary.get("totalMs"), 4.0);
+        Assert.assertEquals(summary.get("meanMs"), 2.0);
+        Assert.assertEquals(summary.get("maxMs"), 3.0);
+    }
+
+    @Test
+    public void countsConcurrentRecords() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            workers.execute(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.record(i % 500);
+                }
+            });
+        }
+        workers.shutdown();
+        Assert.assertTrue(workers.awaitTermination(30, TimeUnit.SECONDS));
+        Assert.assertEquals(histogram.getCount(), 80000);
+        Assert.assertEquals(histogram.getMaxMicros(), 499);
+    }
+}
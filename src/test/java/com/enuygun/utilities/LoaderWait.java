@@ -0,0 +1,61 @@
+package com.enuygun.utilities;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Waits for the site's loading spinners to disappear.
+ * A MutationObserver is installed in the page once; the async script resolves as soon as no element
+ * matching the loader selectors is visible, instead of probing with XPath finds under a long implicit wait.
+ *
+ * configuration.properties:
+ *   loaderSelectors=div[class^='loader']      comma separated CSS selectors
+ */
+public class LoaderWait {
+
+    private static final String AWAIT_LOADERS_HIDDEN = JsLocator.FUNCTIONS +
+            "var selectors = arguments[0], budget = arguments[1], done = arguments[arguments.length - 1];" +
+            "var state = window.__enuygunLoader;" +
+            "if (!state || state.selectors !== selectors) {" +
+            "  state = window.__enuygunLoader = { selectors: selectors, waiters: [] };" +
+            "  state.busy = function () {" +
+            "    var list = document.querySelectorAll(selectors);" +
+            "    for (var i = 0; i < list.length; i++) if (visible(list[i])) return true;" +
+            "    return false;" +
+            "  };" +
+            "  new MutationObserver(function () {" +
+            "    if (!state.waiters.length || state.busy()) return;" +
+            "    var waiters = state.waiters; state.waiters = [];" +
+            "    waiters.forEach(function (w) { w(true); });" +
+            "  }).observe(document.documentElement, { childList: true, subtree: true, attributes: true, attributeFilter: ['style', 'class', 'hidden'] });" +
+            "}" +
+            "if (!state.busy()) return done(true);" +
+            "var finished = false;" +
+            "var finish = function (result) { if (!finished) { finished = true; done(result); } };" +
+            "state.waiters.push(finish);" +
+            "setTimeout(function () { finish(!state.busy()); }, budget);";
+
+    private LoaderWait() {
+
+    }
+
+    /**
+     * Blocks until every loader is hidden
+     *
+     * @param timeSeconds budget of the wait
+     * @throws TimeoutException if a loader is still visible when the budget runs out
+     */
+    public static void await(int timeSeconds) {
+        long start = System.nanoTime();
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(timeSeconds);
+        String selectors = ConfigurationReader.get("loaderSelectors", "div[class^='loader']");
+        TimeoutManager.of(Driver.get()).atLeastScriptTimeout(timeoutMillis + 2000, TimeUnit.MILLISECONDS);
+        Object hidden = ((JavascriptExecutor) Driver.get()).executeAsyncScript(AWAIT_LOADERS_HIDDEN, selectors, timeoutMillis);
+        boolean satisfied = Boolean.TRUE.equals(hidden);
+        Waiter.record("waitLoaderBox", start, start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), !satisfied);
+        if (!satisfied)
+            throw new TimeoutException("Loader is still visible after " + timeSeconds + " seconds: " + selectors);
+    }
+}
@@ -0,0 +1,115 @@
+package com.enuygun.utilities;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Per-session cache of located elements.
+ * An injected MutationObserver increments a DOM generation counter on every change; a cached element is only
+ * used while the page still has the generation it was found in. The generation is read as a token
+ * "<page id>:<counter>" so a counter that restarted on a new page never matches an old entry.
+ * The check runs inside the script that uses the element (see BrowserUtils), so a hit costs no extra command.
+ * The cached elements reference their session, every path that quits a session calls forget().
+ * A session is only used by one thread at a time, the entries need no locking.
+ */
+public class LocatorCache {
+
+    /*
+     * script prefix: installs the observer once per page and defines token, the current DOM generation,
+     * and ignoreOwnChanges, which drops the mutations the script caused itself (focus and scroll handlers of the page
+     * change classes and attributes). A script runs as a task of its own, so every record still queued when it
+     * calls ignoreOwnChanges was caused by the script.
+     */
+    public static final String DOM_GENERATION =
+            "var dom = window.__enuygunDom;" +
+                    "if (!dom) {" +
+                    "  dom = window.__enuygunDom = { id: Math.random().toString(36).slice(2), gen: 0 };" +
+                    "  dom.observer = new MutationObserver(function () { dom.gen++; });" +
+                    "  dom.observer.observe(document.documentElement || document, { childList: true, subtree: true, attributes: true, characterData: true });" +
+                    "}" +
+                    "var token = function () { return dom.id + ':' + dom.gen; };" +
+                    "var ignoreOwnChanges = function () { dom.observer.takeRecords(); };";
+
+    private static final Map<WebDriver, LocatorCache> caches = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder stale = new LongAdder();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private LocatorCache() {
+
+    }
+
+    public static LocatorCache of(WebDriver driver) {
+        return caches.computeIfAbsent(driver, k -> new LocatorCache());
+    }
+
+    /**
+     * Drops all entries of a session that was quit or reset
+     */
+    public static void forget(WebDriver driver) {
+        caches.remove(driver);
+    }
+
+    /**
+     * @return the cached element regardless of its generation, or null
+     */
+    public Entry get(By by, int index) {
+        return entries.get(key(by, index));
+    }
+
+    public void put(By by, int index, WebElement element, String generation) {
+        entries.put(key(by, index), new Entry(element, generation));
+    }
+
+    /**
+     * Removes an entry that turned out to be stale when it was used
+     */
+    public void invalidate(By by, int index) {
+        if (entries.remove(key(by, index)) != null)
+            stale.increment();
+    }
+
+    private static String key(By by, int index) {
+        return index + "|" + by;
+    }
+
+    static void recordHit() {
+        hits.increment();
+    }
+
+    static void recordMiss() {
+        misses.increment();
+    }
+
+    public static String getStatistics() {
+        return "Locator cache: hits=" + hits.sum() + ", misses=" + misses.sum() + ", stale=" + stale.sum();
+    }
+
+    public static class Entry {
+        private final WebElement element;
+        private final String generation;
+
+        private Entry(WebElement element, String generation) {
+            this.element = element;
+            this.generation = generation;
+        }
+
+        public WebElement getElement() {
+            return element;
+        }
+
+        public String getGeneration() {
+            return generation;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.enuygun.utilities;
+
+import org.openqa.selenium.JavascriptExecutor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Network-idle readiness for the single page flows, where document.readyState is "complete" long before
+ * the page has finished talking to the backend.
+ * An injected script counts in-flight fetch/XHR requests (and, optionally, pending animation frames);
+ * the page is ready once nothing has been in flight for a quiet period.
+ * The instrumentation lives until the next full page load, so requests started before the first wait
+ * on a freshly loaded document are not seen; route changes inside the app are fully tracked.
+ *
+ * configuration.properties:
+ *   pageReadiness=networkIdle           use this mode in BrowserUtils.waitForPageToLoad (default: readyState)
+ *   pageIdle.quietMillis=500            how long the page has to stay idle
+ *   pageIdle.animationFrames=true       also wait for pending requestAnimationFrame callbacks
+ */
+public class PageReadiness {
+
+    private static final Map<String, Waiter.WaitStats> timeToIdle = new ConcurrentHashMap<>();
+
+    private static final String INSTRUMENT =
+            "var net = window.__enuygunNet;" +
+                    "if (!net) {" +
+                    "  net = window.__enuygunNet = { requests: 0, frames: new Set(), last: Date.now() };" +
+                    "  var begin = function () { net.requests++; net.last = Date.now(); };" +
+                    "  var end = function () { net.requests = Math.max(0, net.requests - 1); net.last = Date.now(); };" +
+                    "  if (window.fetch) {" +
+                    "    var fetch = window.fetch;" +
+                    "    window.fetch = function () {" +
+                    "      begin();" +
+                    "      try {" +
+                    "        return fetch.apply(this, arguments).then(function (r) { end(); return r; }, function (e) { end(); throw e; });" +
+                    "      } catch (e) { end(); throw e; }" +
+                    "    };" +
+                    "  }" +
+                    "  var send = XMLHttpRequest.prototype.send;" +
+                    "  XMLHttpRequest.prototype.send = function () {" +
+                    "    begin();" +
+                    "    this.addEventListener('loadend', end);" +
+                    "    try {" +
+                    "      return send.apply(this, arguments);" +
+                    "    } catch (e) {" +
+                    // a synchronous throw (request not opened, network error of a sync request) never fires loadend
+                    "      this.removeEventListener('loadend', end); end(); throw e;" +
+                    "    }" +
+                    "  };" +
+                    // pending frames are tracked by id, a cancelled frame never runs its callback
+                    "  var raf = window.requestAnimationFrame, caf = window.cancelAnimationFrame;" +
+                    "  window.requestAnimationFrame = function (callback) {" +
+                    "    var id = raf.call(window, function (time) { net.frames.delete(id); callback(time); });" +
+                    "    net.frames.add(id);" +
+                    "    return id;" +
+                    "  };" +
+                    "  window.cancelAnimationFrame = function (id) {" +
+                    "    net.frames.delete(id);" +
+                    "    return caf.call(window, id);" +
+                    "  };" +
+                    "}";
+
+    private static final String AWAIT_IDLE = INSTRUMENT +
+            "var quiet = arguments[0], budget = arguments[1], frames = arguments[2], done = arguments[arguments.length - 1];" +
+            "var start = Date.now(), page = location.host + location.pathname;" +
+            "(function poll() {" +
+            "  var now = Date.now();" +
+            "  var busy = document.readyState !== 'complete' || net.requests > 0 || (frames && net.frames.size > 0);" +
+            "  if (busy) net.last = Math.max(net.last, now);" +
+            "  if (!busy && now - net.last >= quiet) return done([true, page]);" +
+            "  if (now - start >= budget) return done([false, page]);" +
+            "  setTimeout(poll, busy ? 25 : Math.max(10, quiet - (now - net.last)));" +
+            "})();";
+
+    private PageReadiness() {
+
+    }
+
+    public static boolean isNetworkIdleMode() {
+        return "networkIdle".equalsIgnoreCase(ConfigurationReader.get("pageReadiness"));
+    }
+
+    /**
+     * Waits until the page has had no request in flight for pageIdle.quietMillis
+     *
+     * @param timeOutInSeconds budget of the wait
+     * @return true if the page became idle within the budget
+     */
+    public static boolean awaitIdle(long timeOutInSeconds) {
+        long start = System.nanoTime();
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(timeOutInSeconds);
+        TimeoutManager.of(Driver.get()).atLeastScriptTimeout(timeoutMillis + 2000, TimeUnit.MILLISECONDS);
+        ConfigurationReader.Snapshot config = ConfigurationReader.snapshot();
+        int quietMillis = config.getInt("pageIdle.quietMillis", 500);
+        boolean animationFrames = config.getBoolean("pageIdle.animationFrames", true);
+        // [idle, host + path]; the path keys the statistics so query strings do not split one page
+        List<?> result = (List<?>) ((JavascriptExecutor) Driver.get()).executeAsyncScript(AWAIT_IDLE, quietMillis, timeoutMillis, animationFrames);
+        boolean satisfied = Boolean.TRUE.equals(result.get(0));
+        long elapsed = System.nanoTime() - start;
+        Waiter.record("waitForPageToLoad", start, start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), !satisfied);
+        timeToIdle.computeIfAbsent(String.valueOf(result.get(1)), k -> new Waiter.WaitStats())
+                .add(elapsed, TimeUnit.MILLISECONDS.toNanos(timeoutMillis), !satisfied);
+        return satisfied;
+    }
+
+    public static Map<String, Waiter.WaitStats> getTimeToIdle() {
+        return timeToIdle;
+    }
+
+    public static String getStatistics() {
+        StringBuilder builder = new StringBuilder("Time to idle:");
+        for (Map.Entry<String, Waiter.WaitStats> entry : timeToIdle.entrySet()) {
+            builder.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,385 @@
+package com.enuygun.utilities;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/*
+ * Owns the ExtentReports of the run. Test threads only put events on a lock-free queue,
+ * one writer thread appends them to an event file next to the report, so a slow write never blocks a test
+ * and parallel tests never share an ExtentTest. The events are not kept in memory while the tests run:
+ * ExtentReports holds every test and log and renders the whole HTML on each flush, so the report is built
+ * from the event file and written once, by close() at the end of the suite.
+ *
+ * Tests are bound to the thread that started them, StepLogger finds the test of the calling thread.
+ * getReport() stands in for the ExtentReports of the old TestBase: its createTest names the test of the
+ * calling thread and returns the StepLogger, so "extentLogger = report.createTest(name)" keeps working.
+ *
+ * configuration.properties:
+ *   report.flushMillis=2000      writes the buffered events to the event file at most this often
+ *   report.flushEvents=500       ... or after this many events, whichever comes first
+ */
+public class ReportWriter {
+
+    private static final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    private static final AtomicLong testIds = new AtomicLong();
+    private static final ThreadLocal<Long> currentTest = new ThreadLocal<>();
+    private static final ThreadLocal<List<Long>> currentNodes = ThreadLocal.withInitial(ArrayList::new);
+    private static final Report facade = new Report();
+
+    // only touched by the writer thread, and by close() once it has stopped
+    private static final Map<Long, ExtentTest> tests = new HashMap<>();
+    private static ExtentReports report;
+    private static File eventFile;
+    private static DataOutputStream sink;
+
+    private static volatile Thread writer;
+    private static volatile boolean closing;
+
+    private ReportWriter() {
+
+    }
+
+    /**
+     * Creates the report once per run, later calls are ignored
+     *
+     * @param path       html file
+     * @param reportName title in the report
+     * @param systemInfo environment information
+     */
+    public static synchronized void open(String path, String reportName, Map<String, String> systemInfo) {
+        if (writer != null)
+            return;
+        Map<String, String> info = new LinkedHashMap<>(systemInfo);
+        eventFile = new File(path + ".events");
+        try {
+            eventFile.getAbsoluteFile().getParentFile().mkdirs();
+            sink = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(eventFile), 1 << 16));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        events.add(new Event(null, test -> {
+            ExtentHtmlReporter htmlReporter = new ExtentHtmlReporter(path);
+            htmlReporter.config().setReportName(reportName);
+            report = new ExtentReports();
+            report.attachReporter(htmlReporter);
+            for (Map.Entry<String, String> entry : info.entrySet()) {
+                report.setSystemInfo(entry.getKey(), entry.getValue() == null ? "" : entry.getValue());
+            }
+        }));
+        closing = false;
+        writer = new Thread(ReportWriter::run, "report-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Starts a test in the report and binds it to the calling thread
+     */
+    public static void startTest(String name) {
+        long id = testIds.incrementAndGet();
+        currentTest.set(id);
+        events.add(new Event(null, test -> {
+            if (report != null)
+                tests.put(id, report.createTest(name));
+        }));
+        LockSupport.unpark(writer);
+    }
+
+    public static void endTest() {
+        Long id = currentTest.get();
+        currentTest.remove();
+        List<Long> nodes = new ArrayList<>(currentNodes.get());
+        currentNodes.remove();
+        if (id != null)
+            events.add(new Event(null, test -> {
+                tests.remove(id);
+                for (Long node : nodes) {
+                    tests.remove(node);
+                }
+            }));
+    }
+
+    /**
+     * Adds a node to a test or node, it lives until the test of the calling thread ends
+     *
+     * @param parentId id of the parent node, null for the test of the calling thread
+     * @return id of the node
+     */
+    static long createNode(Long parentId, String name, String description) {
+        long id = testIds.incrementAndGet();
+        currentNodes.get().add(id);
+        Action create = parent -> tests.put(id, description == null ? parent.createNode(name) : parent.createNode(name, description));
+        if (parentId == null)
+            submit(create);
+        else
+            submit(parentId, create);
+        return id;
+    }
+
+    /**
+     * Queues an action for the test of the calling thread, dropped when no test is running
+     */
+    static void submit(Action action) {
+        Long id = currentTest.get();
+        if (id == null)
+            return;
+        submit(id, action);
+    }
+
+    /**
+     * Queues an action for the given test or node
+     */
+    static void submit(long id, Action action) {
+        if (writer == null)
+            return;
+        events.add(new Event(id, action));
+    }
+
+    public static Report getReport() {
+        return facade;
+    }
+
+    /**
+     * Writes everything queued so far, stops the writer and builds the report from the event file.
+     * Called at the end of the suite.
+     */
+    public static synchronized void close() {
+        Thread thread = writer;
+        if (thread == null)
+            return;
+        closing = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(60));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        if (!thread.isAlive())
+            render();
+    }
+
+    private static void run() {
+        long lastFlush = System.nanoTime();
+        int pending = 0;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        while (true) {
+            ConfigurationReader.Snapshot config = ConfigurationReader.snapshot();
+            int flushEvents = config.getInt("report.flushEvents", 500);
+            long flushNanos = TimeUnit.MILLISECONDS.toNanos(config.getInt("report.flushMillis", 2000));
+            Event event = events.poll();
+            if (event != null) {
+                append(event, buffer);
+                pending++;
+                if (pending < flushEvents)
+                    continue;
+            } else if (closing) {
+                closeSink();
+                return;
+            }
+            if (pending > 0 && (pending >= flushEvents || System.nanoTime() - lastFlush >= flushNanos)) {
+                flushSink();
+                pending = 0;
+                lastFlush = System.nanoTime();
+            }
+            if (event == null)
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+    }
+
+    // each event is serialized on its own, so one that cannot be serialized does not break the file
+    private static void append(Event event, ByteArrayOutputStream buffer) {
+        buffer.reset();
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(event);
+        } catch (IOException e) {
+            // a broken log entry must not stop the report
+            e.printStackTrace();
+            return;
+        }
+        try {
+            sink.writeInt(buffer.size());
+            buffer.writeTo(sink);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void flushSink() {
+        try {
+            sink.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void closeSink() {
+        try {
+            sink.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // replays the event file into ExtentReports and writes the HTML
+    private static void render() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(eventFile), 1 << 16))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                try (ObjectInputStream event = new EventInputStream(new ByteArrayInputStream(bytes))) {
+                    apply((Event) event.readObject());
+                } catch (IOException | ClassNotFoundException e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        flush();
+        tests.clear();
+        report = null;
+        if (!eventFile.delete())
+            eventFile.deleteOnExit();
+    }
+
+    private static void apply(Event event) {
+        try {
+            if (event.testId == null) {
+                event.action.accept(null);
+                return;
+            }
+            ExtentTest test = tests.get(event.testId);
+            if (test != null)
+                event.action.accept(test);
+        } catch (RuntimeException e) {
+            // a broken log entry must not stop the report
+            e.printStackTrace();
+        }
+    }
+
+    private static void flush() {
+        try {
+            if (report != null)
+                report.flush();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A report action, serializable so that it can wait in the event file until the report is built.
+     * It must only capture serializable values: strings, enums, collections of them, ids.
+     */
+    interface Action extends Consumer<ExtentTest>, Serializable {
+
+    }
+
+    /*
+     * the part of the ExtentReports API the tests used, applied when the report is built
+     */
+    public static class Report {
+
+        private Report() {
+
+        }
+
+        /**
+         * Names the report test of the calling thread, TestBase has started it already
+         *
+         * @return the logger of the test
+         */
+        public StepLogger createTest(String name) {
+            return createTest(name, null);
+        }
+
+        public StepLogger createTest(String name, String description) {
+            submit(test -> {
+                test.getModel().setName(name);
+                if (description != null)
+                    test.getModel().setDescription(description);
+            });
+            return StepLogger.get();
+        }
+
+        public void setSystemInfo(String key, String value) {
+            if (writer != null)
+                events.add(new Event(null, test -> {
+                    if (report != null)
+                        report.setSystemInfo(key, value);
+                }));
+        }
+
+        /**
+         * Nothing to do, the report is written by ReportWriter.close()
+         */
+        public void flush() {
+
+        }
+    }
+
+    private static class Event implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Long testId;
+        private final Action action;
+
+        private Event(Long testId, Action action) {
+            this.testId = testId;
+            this.action = action;
+        }
+    }
+
+    // resolves the classes of the events, lambdas included, with the loader of the test classes
+    private static class EventInputStream extends ObjectInputStream {
+
+        private EventInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(description.getName(), false, ReportWriter.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(description);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.enuygun.utilities;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriverException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/*
+ * "Last N steps" evidence: click, sendKeys and navigateTo capture a small JPEG frame into a fixed-size
+ * ring per worker thread, and only a failing test writes its frames to disk.
+ * All frame buffers are allocated once per thread and reused, a frame that does not fit its slot is dropped,
+ * so memory per session never exceeds (frames + 1) * frameKb. A frame is encoded into a spare buffer that
+ * takes the place of the oldest frame only once it is complete, a dropped frame leaves the ring untouched.
+ *
+ * configuration.properties:
+ *   screenshot.ring.frames=0         number of frames kept, 0 turns the ring off
+ *   screenshot.ring.frameKb=96       size of one preallocated frame buffer
+ *   screenshot.ring.scale=0.3
+ *   screenshot.ring.jpgQuality=0.5
+ */
+public class ScreenshotRing {
+
+    private static final int frames = ConfigurationReader.getInt("screenshot.ring.frames", 0);
+    private static final int frameBytes = ConfigurationReader.getInt("screenshot.ring.frameKb", 96) * 1024;
+
+    private static final ThreadLocal<ScreenshotRing> rings = ThreadLocal.withInitial(ScreenshotRing::new);
+
+    private final byte[][] buffers = new byte[frames][frameBytes];
+    private byte[] spare = new byte[frameBytes];
+    private final int[] lengths = new int[frames];
+    private final String[] labels = new String[frames];
+    private final SlotOutputStream slot = new SlotOutputStream();
+    private int next;
+    private int size;
+
+    private ScreenshotRing() {
+
+    }
+
+    public static boolean isEnabled() {
+        return frames > 0;
+    }
+
+    /**
+     * Captures a frame for the step, when the ring is enabled
+     *
+     * @param label step description shown next to the frame, only built when the ring is enabled
+     */
+    public static void capture(Supplier<String> label) {
+        if (isEnabled())
+            rings.get().add(label.get());
+    }
+
+    /**
+     * Forgets the frames of the previous test on this thread, the buffers are kept
+     */
+    public static void reset() {
+        if (isEnabled()) {
+            ScreenshotRing ring = rings.get();
+            ring.next = 0;
+            ring.size = 0;
+        }
+    }
+
+    /**
+     * Writes the frames of the current thread to disk, oldest first
+     *
+     * @param target path prefix, the frame number and extension are appended
+     * @return one [label, path] pair per written frame
+     */
+    public static List<String[]> flush(String target) {
+        List<String[]> written = new ArrayList<>();
+        if (!isEnabled())
+            return written;
+        ScreenshotRing ring = rings.get();
+        for (int i = 0; i < ring.size; i++) {
+            int index = (ring.next - ring.size + i + frames) % frames;
+            // the slot is reused by the next test, the writer gets its own copy
+            byte[] jpg = Arrays.copyOf(ring.buffers[index], ring.lengths[index]);
+            written.add(new String[]{ring.labels[index], ScreenshotWriter.writeRaw(jpg, target + "_step" + (i + 1) + ".jpg")});
+        }
+        reset();
+        return written;
+    }
+
+    private void add(String label) {
+        try {
+            byte[] png = ((TakesScreenshot) Driver.get()).getScreenshotAs(OutputType.BYTES);
+            ConfigurationReader.Snapshot config = ConfigurationReader.snapshot();
+            slot.reset(spare);
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+            try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(slot)) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality((float) config.getDouble("screenshot.ring.jpgQuality", 0.5));
+                double scale = config.getDouble("screenshot.ring.scale", 0.3);
+                writer.write(null, new IIOImage(ScreenshotWriter.resize(ImageIO.read(new ByteArrayInputStream(png)), scale), null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            if (slot.overflow)
+                return;
+            // the complete frame replaces the oldest one, whose buffer becomes the spare
+            spare = buffers[next];
+            buffers[next] = slot.buffer;
+            lengths[next] = slot.length;
+            labels[next] = label;
+            next = (next + 1) % frames;
+            size = Math.min(size + 1, frames);
+        } catch (IOException | WebDriverException e) {
+            // evidence is best effort, it must never fail the step
+            e.printStackTrace();
+        }
+    }
+
+    /*
+     * writes into a preallocated frame buffer and remembers when the frame did not fit
+     */
+    private static class SlotOutputStream extends OutputStream {
+        private byte[] buffer;
+        private int length;
+        private boolean overflow;
+
+        private void reset(byte[] buffer) {
+            this.buffer = buffer;
+            this.length = 0;
+            this.overflow = false;
+        }
+
+        @Override
+        public void write(int b) {
+            if (length >= buffer.length) {
+                overflow = true;
+                return;
+            }
+            buffer[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int count) {
+            if (length + count > buffer.length) {
+                overflow = true;
+                return;
+            }
+            System.arraycopy(bytes, offset, buffer, length, count);
+            length += count;
+        }
+    }
+}
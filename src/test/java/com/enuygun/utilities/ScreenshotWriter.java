@@ -0,0 +1,194 @@
+package com.enuygun.utilities;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Writes screenshots on background threads so the test thread only pays for the capture itself.
+ * The final path is known before the file exists; files are written to a temp name and renamed,
+ * so a reader never sees half a picture. When the queue is full the calling thread encodes the
+ * screenshot itself, which slows producers down instead of growing the heap.
+ * shutdown() drains the writer threads at the end of a suite; the next write starts new ones,
+ * so a second suite in the same JVM still gets its screenshots.
+ *
+ * configuration.properties:
+ *   screenshot.format=png          png or jpg
+ *   screenshot.scale=1.0           e.g. 0.5 halves width and height
+ *   screenshot.jpgQuality=0.8
+ *   screenshot.writerThreads=2
+ *   screenshot.queueSize=16
+ */
+public class ScreenshotWriter {
+
+
+    private static ThreadPoolExecutor executor;
+
+    private ScreenshotWriter() {
+
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        int threads = ConfigurationReader.getInt("screenshot.writerThreads", 2);
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(ConfigurationReader.getInt("screenshot.queueSize", 16)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "screenshot-writer-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // unlike CallerRunsPolicy this also runs a task handed to an executor that was shut down meanwhile
+                (task, pool) -> task.run());
+    }
+
+    private static synchronized ThreadPoolExecutor executor() {
+        if (executor == null)
+            executor = createExecutor();
+        return executor;
+    }
+
+    /**
+     * Hands the captured PNG over to the writer threads
+     *
+     * @param png    bytes from getScreenshotAs(OutputType.BYTES)
+     * @param target path without extension
+     * @return path the screenshot will be written to
+     */
+    public static String write(byte[] png, String target) {
+        // the extension and the encoding from the same version of the configuration
+        ConfigurationReader.Snapshot config = ConfigurationReader.snapshot();
+        String path = target + "." + format(config);
+        executor().execute(() -> {
+            try {
+                writeNow(png, new File(path), config);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        return path;
+    }
+
+    /**
+     * Hands already encoded bytes over to the writer threads, they are written as they are
+     *
+     * @param bytes encoded image, not modified afterwards by the caller
+     * @param path  path with extension
+     * @return the path
+     */
+    public static String writeRaw(byte[] bytes, String path) {
+        executor().execute(() -> {
+            try {
+                File destination = new File(path);
+                File directory = destination.getAbsoluteFile().getParentFile();
+                directory.mkdirs();
+                Path temp = Files.createTempFile(directory.toPath(), destination.getName(), ".tmp");
+                try {
+                    Files.write(temp, bytes);
+                    Files.move(temp, destination.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        return path;
+    }
+
+    /**
+     * Encodes and writes the screenshot on the calling thread
+     */
+    public static void writeNow(byte[] png, File destination) throws IOException {
+        writeNow(png, destination, ConfigurationReader.snapshot());
+    }
+
+    private static String format(ConfigurationReader.Snapshot config) {
+        String format = config.get("screenshot.format");
+        return format == null ? "png" : format;
+    }
+
+    private static void writeNow(byte[] png, File destination, ConfigurationReader.Snapshot config) throws IOException {
+        String format = format(config);
+        double scale = config.getDouble("screenshot.scale", 1.0);
+        File directory = destination.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        Path temp = Files.createTempFile(directory.toPath(), destination.getName(), ".tmp");
+        try {
+            if (scale == 1.0 && "png".equals(format)) {
+                // nothing to re-encode
+                Files.write(temp, png);
+            } else {
+                encode(png, temp.toFile(), format, scale, (float) config.getDouble("screenshot.jpgQuality", 0.8));
+            }
+            Files.move(temp, destination.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void encode(byte[] png, File file, String format, double scale, float jpgQuality) throws IOException {
+        BufferedImage image = resize(ImageIO.read(new ByteArrayInputStream(png)), scale);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpgQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Resizes the image; jpg has no alpha channel, so the result is always RGB
+     */
+    static BufferedImage resize(BufferedImage source, double factor) {
+        int width = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * factor));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    /**
+     * Waits until every queued screenshot is on disk. Called at the end of the suite.
+     */
+    public static void shutdown() {
+        ThreadPoolExecutor draining;
+        synchronized (ScreenshotWriter.class) {
+            draining = executor;
+            executor = null;
+        }
+        if (draining == null)
+            return;
+        draining.shutdown();
+        try {
+            if (!draining.awaitTermination(60, TimeUnit.SECONDS))
+                System.err.println("Screenshots still pending after 60 seconds: " + draining.getQueue().size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
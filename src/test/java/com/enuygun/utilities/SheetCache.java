@@ -0,0 +1,257 @@
+package com.enuygun.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+ * Parsed sheets, compiled into a binary file that later runs map into memory instead of parsing the workbook again.
+ * The file name carries the SHA-256 of the workbook, so a changed workbook simply misses the cache
+ * and the files of its older versions are deleted when the new one is written. The older versions are found
+ * by a prefix hashed from the canonical path and the sheet, workbooks of the same name in other folders are kept.
+ * The SHA-256 is computed once per JVM for each canonical path, size and modification time of a workbook,
+ * later reads of an unchanged workbook only look at the file's attributes.
+ * ExcelUtil reads through the cache with its own parser (cell.toString() texts), its files are kept apart
+ * from the streamed ones of getDataArray(path, sheetName).
+ *
+ * Layout (big endian ints):
+ *   magic, version, rows, columns,
+ *   dictionary size n, n + 1 offsets into the UTF-8 bytes of the distinct cell values, the bytes,
+ *   then one int per cell, column by column, pointing into the dictionary
+ * Test data repeats a lot (airports, dates, passenger types), the dictionary keeps each value once.
+ *
+ * configuration.properties:
+ *   excel.cacheDir=test-output/sheet-cache
+ */
+public class SheetCache {
+
+    private static final int MAGIC = 0x584c5343;
+    private static final int VERSION = 1;
+
+    private static final String cacheDir = ConfigurationReader.get("excel.cacheDir", System.getProperty("user.dir") + "/test-output/sheet-cache");
+
+    // "canonical path\nsize\nmodified" to the SHA-256 of that version of the workbook
+    private static final Map<String, String> hashes = new ConcurrentHashMap<>();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final AtomicLong hitNanos = new AtomicLong();
+    private static final AtomicLong missNanos = new AtomicLong();
+
+    private SheetCache() {
+
+    }
+
+    /**
+     * All rows of the sheet including the header, like ExcelUtil.getDataArray()
+     */
+    public static String[][] getDataArray(String path, String sheetName) {
+        return getDataArray(path, sheetName, "stream", () -> parse(path, sheetName));
+    }
+
+    /**
+     * @param parser parser name, part of the cache key
+     * @param parse  reads the sheet when it is not cached
+     */
+    static String[][] getDataArray(String path, String sheetName, String parser, Supplier<String[][]> parse) {
+        long start = System.nanoTime();
+        try {
+            File workbook = new File(path).getCanonicalFile();
+            String key = workbook.getPath() + "\n" + parser + "\n" + sheetName;
+            String prefix = workbook.getName() + "." + sha256(key.getBytes(StandardCharsets.UTF_8)).substring(0, 16) + ".";
+            File cached = new File(cacheDir, prefix + hashOf(workbook) + ".bin");
+            if (cached.isFile()) {
+                String[][] data = read(cached);
+                hits.increment();
+                hitNanos.addAndGet(System.nanoTime() - start);
+                return data;
+            }
+            String[][] data = parse.get();
+            write(data, cached, prefix);
+            misses.increment();
+            missNanos.addAndGet(System.nanoTime() - start);
+            return data;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Same as ExcelUtil.getDataArrayWithoutFirstRow()
+     */
+    public static String[][] getDataArrayWithoutFirstRow(String path, String sheetName) {
+        String[][] data = getDataArray(path, sheetName);
+        String[][] rows = new String[Math.max(0, data.length - 1)][];
+        System.arraycopy(data, 1, rows, 0, rows.length);
+        return rows;
+    }
+
+    private static String[][] parse(String path, String sheetName) {
+        if (path.toLowerCase().endsWith(".xls"))
+            return new ExcelUtil(path, sheetName).readDataArray();
+        return XlsxStreamReader.getDataArray(path, sheetName, false);
+    }
+
+    private static void write(String[][] data, File destination, String prefix) throws IOException {
+        int rows = data.length;
+        int columns = rows == 0 ? 0 : data[0].length;
+
+        Map<String, Integer> indexes = new HashMap<>();
+        List<byte[]> dictionary = new ArrayList<>();
+        int[] cells = new int[rows * columns];
+        int bytes = 0;
+        for (int column = 0; column < columns; column++) {
+            for (int row = 0; row < rows; row++) {
+                String value = data[row][column] == null ? "" : data[row][column];
+                Integer index = indexes.get(value);
+                if (index == null) {
+                    index = dictionary.size();
+                    indexes.put(value, index);
+                    byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                    dictionary.add(encoded);
+                    bytes += encoded.length;
+                }
+                cells[column * rows + row] = index;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 * 5 + 4 * (dictionary.size() + 1) + bytes + 4 * cells.length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(columns).putInt(dictionary.size());
+        int offset = 0;
+        for (byte[] value : dictionary) {
+            buffer.putInt(offset);
+            offset += value.length;
+        }
+        buffer.putInt(offset);
+        for (byte[] value : dictionary) {
+            buffer.put(value);
+        }
+        buffer.asIntBuffer().put(cells);
+        buffer.position(buffer.limit());
+        buffer.flip();
+
+        File directory = destination.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        Path temp = Files.createTempFile(directory.toPath(), destination.getName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, destination.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        // older versions of the same workbook and sheet
+        File[] stale = directory.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(".bin") && !name.equals(destination.getName()));
+        if (stale != null) {
+            for (File file : stale) {
+                file.delete();
+            }
+        }
+    }
+
+    private static String[][] read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IOException("Not a sheet cache file: " + file);
+            int rows = buffer.getInt();
+            int columns = buffer.getInt();
+            int size = buffer.getInt();
+
+            int[] offsets = new int[size + 1];
+            buffer.asIntBuffer().get(offsets);
+            int bytesStart = buffer.position() + 4 * offsets.length;
+            byte[] bytes = new byte[offsets[size]];
+            buffer.position(bytesStart);
+            buffer.get(bytes);
+            String[] dictionary = new String[size];
+            for (int i = 0; i < size; i++) {
+                dictionary[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+            }
+
+            int[] cells = new int[rows * columns];
+            buffer.asIntBuffer().get(cells);
+            String[][] data = new String[rows][columns];
+            for (int column = 0; column < columns; column++) {
+                for (int row = 0; row < rows; row++) {
+                    data[row][column] = dictionary[cells[column * rows + row]];
+                }
+            }
+            return data;
+        }
+    }
+
+    private static String hashOf(File workbook) throws IOException {
+        String version = workbook.getPath() + "\n" + workbook.length() + "\n" + workbook.lastModified();
+        String hash = hashes.get(version);
+        if (hash == null) {
+            hash = sha256(workbook);
+            hashes.put(version, hash);
+        }
+        return hash;
+    }
+
+    private static String sha256(File file) throws IOException {
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] chunk = new byte[1 << 16];
+            int read;
+            while ((read = input.read(chunk)) > 0) {
+                digest.update(chunk, 0, read);
+            }
+            return hex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return hex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @return cold parse against warm load times, added to the report at the end of the suite
+     */
+    public static String getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        return String.format("Sheet cache: %d parsed (avg %d ms), %d loaded from cache (avg %d ms)",
+                missCount, missCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(missNanos.get()) / missCount,
+                hitCount, hitCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(hitNanos.get()) / hitCount);
+    }
+}
@@ -0,0 +1,189 @@
+package com.enuygun.utilities;
+
+import org.apache.poi.util.LocaleUtil;
+
+import java.math.BigDecimal;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/*
+ * One data row: the values in a flat array and the column names in a Header shared by every row of the sheet,
+ * instead of a HashMap per row. It is a read-only Map, so it works where a Map<String, String> row did;
+ * cells that do not exist in the sheet are not in the map, like before.
+ * The typed getters parse the value when they are called.
+ */
+public class SheetRow extends AbstractMap<String, String> {
+
+    private static final LocalDate EXCEL_EPOCH = LocalDate.of(1899, 12, 30);
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("dd-MMM-yyyy", Locale.ENGLISH),
+            DateTimeFormatter.ofPattern("dd.MM.yyyy"),
+            DateTimeFormatter.ofPattern("dd/MM/yyyy")
+    };
+
+    private final Header header;
+    private final String[] values;
+
+    public SheetRow(Header header, String[] values) {
+        this.header = header;
+        this.values = values;
+    }
+
+    @Override
+    public String get(Object key) {
+        int index = header.indexOf(key);
+        return index < 0 || index >= values.length ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < header.names.length; i++) {
+            if (i < values.length && values[i] != null && header.isOwner(i))
+                size++;
+        }
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<Entry<String, String>>() {
+                    private int next = seek(0);
+
+                    private int seek(int from) {
+                        int i = from;
+                        while (i < header.names.length && (i >= values.length || values[i] == null || !header.isOwner(i))) {
+                            i++;
+                        }
+                        return i;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < header.names.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        Entry<String, String> entry = new SimpleImmutableEntry<>(header.names[next], values[next]);
+                        next = seek(next + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return SheetRow.this.size();
+            }
+        };
+    }
+
+    public int getInt(String column) {
+        return getDecimal(column).intValueExact();
+    }
+
+    /**
+     * @return the value as a number, "42.0" of a numeric cell included
+     */
+    public BigDecimal getDecimal(String column) {
+        String value = require(column);
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Column " + column + " is not a number: " + value, e);
+        }
+    }
+
+    /**
+     * @return the value as a date, written as text or as an Excel serial number
+     */
+    public LocalDate getDate(String column) {
+        String value = require(column);
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format);
+            } catch (DateTimeParseException e) {
+                // next format
+            }
+        }
+        LocalDate cellDate = parseCellDate(value);
+        if (cellDate != null)
+            return cellDate;
+        try {
+            return EXCEL_EPOCH.plusDays(new BigDecimal(value).longValue());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Column " + column + " is not a date: " + value, e);
+        }
+    }
+
+    // what cell.toString() gives for a date cell: POI formats it with the locale and time zone of LocaleUtil
+    private static LocalDate parseCellDate(String value) {
+        SimpleDateFormat format = new SimpleDateFormat("dd-MMM-yyyy", LocaleUtil.getUserLocale());
+        format.setTimeZone(LocaleUtil.getUserTimeZone());
+        format.setLenient(false);
+        ParsePosition position = new ParsePosition(0);
+        Date date = format.parse(value, position);
+        if (date == null || position.getIndex() != value.length())
+            return null;
+        return date.toInstant().atZone(LocaleUtil.getUserTimeZone().toZoneId()).toLocalDate();
+    }
+
+    private String require(String column) {
+        String value = get(column);
+        if (value == null)
+            throw new IllegalArgumentException("Column " + column + " has no value");
+        return value.trim();
+    }
+
+    /*
+     * column names of a sheet, created once and shared by all of its rows
+     */
+    public static class Header {
+        private final String[] names;
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        public Header(List<String> names) {
+            this.names = new String[names.size()];
+            for (int i = 0; i < this.names.length; i++) {
+                this.names[i] = names.get(i).intern();
+                // a repeated name points at its last column, like put() into a HashMap did
+                indexes.put(this.names[i], i);
+            }
+        }
+
+        public int indexOf(Object name) {
+            Integer index = indexes.get(name);
+            return index == null ? -1 : index;
+        }
+
+        // false for a column whose name is repeated later, it is hidden by the later one
+        private boolean isOwner(int index) {
+            return indexes.get(names[index]) == index;
+        }
+    }
+}
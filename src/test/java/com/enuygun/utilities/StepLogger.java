@@ -0,0 +1,306 @@
+package com.enuygun.utilities;
+
+import com.aventstack.extentreports.MediaEntityModelProvider;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.markuputils.Markup;
+import com.aventstack.extentreports.model.Media;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.function.Supplier;
+
+/*
+ * Logs steps to the report test of the calling thread. Nothing is written here,
+ * every call only queues an event for the ReportWriter, so logging never waits for the report.
+ *
+ * The methods mirror the logging API of ExtentTest (info/pass/fail/warning/skip/error/fatal/debug with text,
+ * Throwable, Markup or media, log(Status, ...), nodes, categories, authors, devices and screen captures),
+ * so code written against the ExtentTest extentLogger of TestBase keeps compiling. The one exception is info(Markup),
+ * which would be ambiguous with info(Supplier) for lambdas, use log(Status.INFO, markup).
+ *
+ * Messages below the configured level are dropped before they are built; the Supplier overloads
+ * are for messages that cost something, e.g. a getText() command for the element name.
+ * Failures, errors and the evidence of a failure are always logged.
+ *
+ * The entries wait in ReportWriter's event file until the report is built, so they only hold serializable values:
+ * markup is kept as its HTML, media as its Media model, and an exception that cannot be serialized as a copy
+ * with its message and stack trace.
+ *
+ * configuration.properties:
+ *   logLevel=INFO       DEBUG also logs element texts, ERROR only failures
+ */
+public class StepLogger {
+
+    public enum Level {
+        DEBUG, INFO, ERROR
+    }
+
+    private static final StepLogger instance = new StepLogger(null);
+
+    // null logs to the test of the calling thread, otherwise to this node
+    private final Long nodeId;
+
+    private StepLogger(Long nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public static StepLogger get() {
+        return instance;
+    }
+
+    public boolean isEnabled(Level messageLevel) {
+        return messageLevel.compareTo(ConfigurationReader.getEnum("logLevel", Level.class, Level.INFO)) >= 0;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    private StepLogger submit(ReportWriter.Action action) {
+        if (nodeId == null)
+            ReportWriter.submit(action);
+        else
+            ReportWriter.submit(nodeId, action);
+        return this;
+    }
+
+    private StepLogger submit(Level messageLevel, ReportWriter.Action action) {
+        return isEnabled(messageLevel) ? submit(action) : this;
+    }
+
+    private static Level levelOf(Status status) {
+        switch (status) {
+            case FAIL:
+            case FATAL:
+            case ERROR:
+                return Level.ERROR;
+            case DEBUG:
+                return Level.DEBUG;
+            default:
+                return Level.INFO;
+        }
+    }
+
+    public StepLogger debug(Supplier<String> details) {
+        return isEnabled(Level.DEBUG) ? log(Status.DEBUG, details.get()) : this;
+    }
+
+    public StepLogger info(Supplier<String> details) {
+        return isEnabled(Level.INFO) ? log(Status.INFO, details.get()) : this;
+    }
+
+    public StepLogger log(Status status, String details) {
+        return submit(levelOf(status), test -> test.log(status, details));
+    }
+
+    public StepLogger log(Status status, Throwable throwable) {
+        if (!isEnabled(levelOf(status)))
+            return this;
+        Throwable portable = portable(throwable);
+        return submit(test -> test.log(status, portable));
+    }
+
+    public StepLogger log(Status status, Markup markup) {
+        if (!isEnabled(levelOf(status)))
+            return this;
+        String html = markup.getMarkup();
+        return submit(test -> test.log(status, (Markup) () -> html));
+    }
+
+    public StepLogger log(Status status, String details, MediaEntityModelProvider media) {
+        if (!isEnabled(levelOf(status)))
+            return this;
+        Media model = media.getMedia();
+        return submit(test -> test.log(status, details, new MediaEntityModelProvider(model)));
+    }
+
+    public StepLogger log(Status status, Throwable throwable, MediaEntityModelProvider media) {
+        if (!isEnabled(levelOf(status)))
+            return this;
+        Throwable portable = portable(throwable);
+        Media model = media.getMedia();
+        return submit(test -> test.log(status, portable, new MediaEntityModelProvider(model)));
+    }
+
+    // the throwable itself if it can be written to the event file, otherwise a copy of its text and stack trace
+    private static Throwable portable(Throwable throwable) {
+        try (ObjectOutputStream out = new ObjectOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+
+            }
+        })) {
+            out.writeObject(throwable);
+            return throwable;
+        } catch (IOException e) {
+            Throwable copy = new RuntimeException(throwable.toString(), throwable.getCause() == null ? null : portable(throwable.getCause()));
+            copy.setStackTrace(throwable.getStackTrace());
+            return copy;
+        }
+    }
+
+    public StepLogger info(String details) {
+        return log(Status.INFO, details);
+    }
+
+    public StepLogger info(Throwable throwable) {
+        return log(Status.INFO, throwable);
+    }
+
+    public StepLogger info(String details, MediaEntityModelProvider media) {
+        return log(Status.INFO, details, media);
+    }
+
+    /**
+     * Logs a step that explains a failure, e.g. a screenshot taken before it, at every log level
+     */
+    public StepLogger evidence(String details, MediaEntityModelProvider media) {
+        Media model = media.getMedia();
+        return submit(test -> test.info(details, new MediaEntityModelProvider(model)));
+    }
+
+    public StepLogger pass(String details) {
+        return log(Status.PASS, details);
+    }
+
+    public StepLogger pass(Throwable throwable) {
+        return log(Status.PASS, throwable);
+    }
+
+    public StepLogger pass(Markup markup) {
+        return log(Status.PASS, markup);
+    }
+
+    public StepLogger pass(String details, MediaEntityModelProvider media) {
+        return log(Status.PASS, details, media);
+    }
+
+    public StepLogger fail(String details) {
+        return log(Status.FAIL, details);
+    }
+
+    public StepLogger fail(Throwable throwable) {
+        return log(Status.FAIL, throwable);
+    }
+
+    public StepLogger fail(Markup markup) {
+        return log(Status.FAIL, markup);
+    }
+
+    public StepLogger fail(String details, MediaEntityModelProvider media) {
+        return log(Status.FAIL, details, media);
+    }
+
+    public StepLogger fail(Throwable throwable, MediaEntityModelProvider media) {
+        return log(Status.FAIL, throwable, media);
+    }
+
+    public StepLogger error(String details) {
+        return log(Status.ERROR, details);
+    }
+
+    public StepLogger error(Throwable throwable) {
+        return log(Status.ERROR, throwable);
+    }
+
+    public StepLogger error(Markup markup) {
+        return log(Status.ERROR, markup);
+    }
+
+    public StepLogger fatal(String details) {
+        return log(Status.FATAL, details);
+    }
+
+    public StepLogger fatal(Throwable throwable) {
+        return log(Status.FATAL, throwable);
+    }
+
+    public StepLogger warning(String details) {
+        return log(Status.WARNING, details);
+    }
+
+    public StepLogger warning(Throwable throwable) {
+        return log(Status.WARNING, throwable);
+    }
+
+    public StepLogger warning(Markup markup) {
+        return log(Status.WARNING, markup);
+    }
+
+    public StepLogger skip(String details) {
+        return log(Status.SKIP, details);
+    }
+
+    public StepLogger skip(Throwable throwable) {
+        return log(Status.SKIP, throwable);
+    }
+
+    public StepLogger skip(Markup markup) {
+        return log(Status.SKIP, markup);
+    }
+
+    public StepLogger debug(String details) {
+        return log(Status.DEBUG, details);
+    }
+
+    public StepLogger assignCategory(String... categories) {
+        return submit(test -> test.assignCategory(categories));
+    }
+
+    public StepLogger assignAuthor(String... authors) {
+        return submit(test -> test.assignAuthor(authors));
+    }
+
+    public StepLogger assignDevice(String... devices) {
+        return submit(test -> test.assignDevice(devices));
+    }
+
+    /**
+     * Adds a node under the test (or node) of this logger, like ExtentTest.createNode
+     *
+     * @return a logger for the node
+     */
+    public StepLogger createNode(String name) {
+        return createNode(name, null);
+    }
+
+    public StepLogger createNode(String name, String description) {
+        return new StepLogger(ReportWriter.createNode(nodeId, name, description));
+    }
+
+    // declared like the ExtentTest methods, so callers that catch the IOException keep compiling
+    public StepLogger addScreenCaptureFromPath(String path) throws IOException {
+        return addScreenCaptureFromPath(path, null);
+    }
+
+    public StepLogger addScreenCaptureFromPath(String path, String title) throws IOException {
+        return submit(test -> {
+            try {
+                if (title == null)
+                    test.addScreenCaptureFromPath(path);
+                else
+                    test.addScreenCaptureFromPath(path, title);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public StepLogger addScreenCaptureFromBase64String(String base64) throws IOException {
+        return addScreenCaptureFromBase64String(base64, null);
+    }
+
+    public StepLogger addScreenCaptureFromBase64String(String base64, String title) throws IOException {
+        return submit(test -> {
+            try {
+                if (title == null)
+                    test.addScreenCaptureFromBase64String(base64);
+                else
+                    test.addScreenCaptureFromBase64String(base64, title);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+}
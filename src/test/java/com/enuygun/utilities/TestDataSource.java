@@ -0,0 +1,58 @@
+package com.enuygun.utilities;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Tabular test data, whatever the file format. The first row / the keys of the first record are the column names.
+ * open() picks the implementation by the file extension, so a data file can move from xlsx to csv or jsonl
+ * without touching the tests:
+ *   .xlsx .xls       ExcelUtil (sheetName is the sheet)
+ *   .csv             CsvDataSource
+ *   .jsonl .ndjson   JsonLinesDataSource
+ */
+public interface TestDataSource extends Closeable {
+
+    static TestDataSource open(String path, String sheetName) {
+        String name = path.toLowerCase();
+        if (name.endsWith(".xlsx") || name.endsWith(".xls"))
+            return new ExcelUtil(path, sheetName);
+        if (name.endsWith(".csv"))
+            return new CsvDataSource(path);
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson"))
+            return new JsonLinesDataSource(path);
+        throw new IllegalArgumentException("No test data source for " + path);
+    }
+
+    List<String> getColumnsNames();
+
+    /**
+     * @return the data rows without the header, as wide as the header; streaming sources can be iterated once
+     */
+    Iterator<String[]> rows();
+
+    default String[][] getDataArrayWithoutFirstRow() {
+        List<String[]> data = new ArrayList<>();
+        Iterator<String[]> rows = rows();
+        while (rows.hasNext()) {
+            data.add(rows.next());
+        }
+        return data.toArray(new String[0][]);
+    }
+
+    default List<Map<String, String>> getDataList() {
+        SheetRow.Header header = new SheetRow.Header(getColumnsNames());
+        List<Map<String, String>> data = new ArrayList<>();
+        Iterator<String[]> rows = rows();
+        while (rows.hasNext()) {
+            data.add(new SheetRow(header, rows.next()));
+        }
+        return data;
+    }
+
+    @Override
+    void close();
+}
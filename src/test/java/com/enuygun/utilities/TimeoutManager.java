@@ -0,0 +1,208 @@
+package com.enuygun.utilities;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+ * Remembers the implicit, page load and script timeouts of a browser session.
+ * Every timeout change is an HTTP command to the driver, so a change to the value the session already has is skipped.
+ * The implicit wait of a withImplicitWait block is restored lazily, right before the next find command outside
+ * of a block, so consecutive blocks with the same wait (the existence checks in the calendar loops) cost no
+ * timeout command at all. That needs the command executor of the session, without it the wait is restored at once.
+ * A session is only used by one thread at a time, the state needs no locking.
+ */
+public class TimeoutManager {
+
+    private static final Map<WebDriver, TimeoutManager> managers = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final LongAdder issued = new LongAdder();
+    private static final LongAdder avoided = new LongAdder();
+
+    private static final long UNKNOWN = -1;
+
+    // weak, the manager is the value of a WeakHashMap keyed by the same driver and must not keep it alive
+    private final WeakReference<WebDriver> driver;
+    private final boolean lazyRestore;
+    private long implicitMillis = UNKNOWN;
+    private long pageLoadMillis = UNKNOWN;
+    private long scriptMillis = UNKNOWN;
+
+    // implicit wait to set before the next find command outside of a withImplicitWait block
+    private long pendingImplicitMillis = UNKNOWN;
+    private int blockDepth;
+
+    private TimeoutManager(WebDriver driver) {
+        this.driver = new WeakReference<>(driver);
+        this.lazyRestore = CommandMetrics.decorate(driver, delegate -> new RestoringExecutor(delegate));
+    }
+
+    public static TimeoutManager of(WebDriver driver) {
+        return managers.computeIfAbsent(driver, TimeoutManager::new);
+    }
+
+    /**
+     * Drops the state of a session that was quit
+     */
+    public static void forget(WebDriver driver) {
+        managers.remove(driver);
+    }
+
+    private WebDriver.Timeouts timeouts() {
+        WebDriver session = driver.get();
+        if (session == null)
+            throw new IllegalStateException("The browser session of this TimeoutManager is gone");
+        return session.manage().timeouts();
+    }
+
+    public void implicitlyWait(long time, TimeUnit unit) {
+        // an explicit value outside of a block replaces the pending restore
+        if (blockDepth == 0)
+            pendingImplicitMillis = UNKNOWN;
+        setImplicit(unit.toMillis(time));
+    }
+
+    private void setImplicit(long millis) {
+        if (millis == implicitMillis) {
+            avoided.increment();
+            return;
+        }
+        timeouts().implicitlyWait(millis, TimeUnit.MILLISECONDS);
+        implicitMillis = millis;
+        issued.increment();
+    }
+
+    public void pageLoadTimeout(long time, TimeUnit unit) {
+        long millis = unit.toMillis(time);
+        if (millis == pageLoadMillis) {
+            avoided.increment();
+            return;
+        }
+        timeouts().pageLoadTimeout(millis, TimeUnit.MILLISECONDS);
+        pageLoadMillis = millis;
+        issued.increment();
+    }
+
+    public void setScriptTimeout(long time, TimeUnit unit) {
+        long millis = unit.toMillis(time);
+        if (millis == scriptMillis) {
+            avoided.increment();
+            return;
+        }
+        timeouts().setScriptTimeout(millis, TimeUnit.MILLISECONDS);
+        scriptMillis = millis;
+        issued.increment();
+    }
+
+    /**
+     * Makes sure the script timeout is at least the given value, an async script can then run without a new command
+     */
+    public void atLeastScriptTimeout(long time, TimeUnit unit) {
+        if (scriptMillis != UNKNOWN && scriptMillis >= unit.toMillis(time)) {
+            avoided.increment();
+            return;
+        }
+        setScriptTimeout(time, unit);
+    }
+
+    /**
+     * Runs the action with the given implicit wait and restores the previous one afterwards
+     *
+     * @param time   implicit wait used inside the block
+     * @param unit   unit of time
+     * @param action what to run
+     * @return result of the action
+     */
+    public <T> T withImplicitWait(long time, TimeUnit unit, Supplier<T> action) {
+        return inBlock(unit.toMillis(time), getImplicitWaitMillis(), action);
+    }
+
+    /**
+     * Runs the action with the given implicit wait, the session has the restore value afterwards
+     *
+     * @param time    implicit wait used inside the block
+     * @param restore implicit wait for the commands after the block, in the same unit
+     * @param unit    unit of time
+     * @param action  what to run
+     * @return result of the action
+     */
+    public <T> T withImplicitWait(long time, long restore, TimeUnit unit, Supplier<T> action) {
+        return inBlock(unit.toMillis(time), unit.toMillis(restore), action);
+    }
+
+    private <T> T inBlock(long millis, long restoreMillis, Supplier<T> action) {
+        blockDepth++;
+        try {
+            setImplicit(millis);
+            return action.get();
+        } finally {
+            blockDepth--;
+            if (restoreMillis != UNKNOWN && restoreMillis != implicitMillis) {
+                if (lazyRestore && blockDepth == 0)
+                    pendingImplicitMillis = restoreMillis;
+                else
+                    setImplicit(restoreMillis);
+            } else if (blockDepth == 0) {
+                pendingImplicitMillis = UNKNOWN;
+            }
+        }
+    }
+
+    // called before every command of the session, applies a pending restore before a find outside of a block
+    private void beforeCommand(Command command) {
+        if (pendingImplicitMillis == UNKNOWN || blockDepth > 0 || !isFind(command.getName()))
+            return;
+        long millis = pendingImplicitMillis;
+        pendingImplicitMillis = UNKNOWN;
+        setImplicit(millis);
+    }
+
+    private static boolean isFind(String name) {
+        return DriverCommand.FIND_ELEMENT.equals(name) || DriverCommand.FIND_ELEMENTS.equals(name)
+                || DriverCommand.FIND_CHILD_ELEMENT.equals(name) || DriverCommand.FIND_CHILD_ELEMENTS.equals(name);
+    }
+
+    /**
+     * @return the implicit wait the next find command outside of a block will use
+     */
+    public long getImplicitWaitMillis() {
+        return pendingImplicitMillis != UNKNOWN ? pendingImplicitMillis : implicitMillis;
+    }
+
+    public static long getIssuedCommands() {
+        return issued.sum();
+    }
+
+    public static long getAvoidedCommands() {
+        return avoided.sum();
+    }
+
+    public static String getStatistics() {
+        return "Timeout commands: issued=" + getIssuedCommands() + ", avoided=" + getAvoidedCommands();
+    }
+
+    private class RestoringExecutor implements CommandExecutor {
+        private final CommandExecutor delegate;
+
+        private RestoringExecutor(CommandExecutor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Response execute(Command command) throws IOException {
+            beforeCommand(command);
+            return delegate.execute(command);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.enuygun.utilities;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/*
+ * One wait engine for all BrowserUtils helpers.
+ * Conditions are polled with a backoff that starts at a few milliseconds and grows up to a cap,
+ * so a condition that becomes true quickly is noticed quickly and a slow one does not flood the driver.
+ * Every wait records how long it actually took against its budget (see getStatistics()).
+ */
+public class Waiter {
+
+    private static final Map<String, WaitStats> stats = new ConcurrentHashMap<>();
+
+    private static final BooleanSupplier notCancelled = () -> false;
+
+    private Waiter() {
+
+    }
+
+    /**
+     * Polls the condition until it returns a value that is neither null nor false
+     *
+     * @param name          name the wait is recorded under
+     * @param timeoutMillis budget of the wait
+     * @param condition     WebDriverExceptions thrown by it are treated as "not yet"
+     * @return the first non-null, non-false value of the condition
+     * @throws TimeoutException if the budget runs out
+     */
+    public static <T> T until(String name, long timeoutMillis, Supplier<T> condition) {
+        return until(name, timeoutMillis, notCancelled, condition);
+    }
+
+    /**
+     * Same as until(name, timeoutMillis, condition) but gives up as soon as cancelled returns true
+     *
+     * @throws TimeoutException if the budget runs out or the wait is cancelled
+     */
+    public static <T> T until(String name, long timeoutMillis, BooleanSupplier cancelled, Supplier<T> condition) {
+        long start = System.nanoTime();
+        return untilDeadline(name, start, start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), cancelled, condition);
+    }
+
+    /**
+     * Polls the condition until the absolute deadline (System.nanoTime() based) passes.
+     * Several waits can share one deadline so a whole step stays inside one budget.
+     */
+    public static <T> T untilDeadline(String name, long deadlineNanos, BooleanSupplier cancelled, Supplier<T> condition) {
+        return untilDeadline(name, System.nanoTime(), deadlineNanos, cancelled, condition);
+    }
+
+    private static <T> T untilDeadline(String name, long start, long deadlineNanos, BooleanSupplier cancelled, Supplier<T> condition) {
+        ConfigurationReader.Snapshot config = ConfigurationReader.snapshot();
+        long pollMillis = config.getInt("wait.minPollMillis", 5);
+        long maxPollMillis = config.getInt("wait.maxPollMillis", 250);
+        WebDriverException lastError = null;
+        try {
+            while (true) {
+                try {
+                    T value = condition.get();
+                    if (value != null && !Boolean.FALSE.equals(value)) {
+                        record(name, start, deadlineNanos, false);
+                        return value;
+                    }
+                } catch (WebDriverException e) {
+                    lastError = e;
+                }
+                long remaining = deadlineNanos - System.nanoTime();
+                boolean isCancelled = cancelled.getAsBoolean();
+                if (remaining <= 0 || isCancelled) {
+                    record(name, start, deadlineNanos, true);
+                    throw new TimeoutException((isCancelled ? "Cancelled " : "Timed out ") + name + " after "
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms", lastError);
+                }
+                TimeUnit.MILLISECONDS.sleep(Math.min(pollMillis, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+                pollMillis = Math.min(pollMillis * 2, maxPollMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            record(name, start, deadlineNanos, true);
+            throw new TimeoutException("Interrupted " + name, e);
+        }
+    }
+
+    /**
+     * Evaluates a JavaScript boolean expression inside the browser until it is true.
+     * Polling happens in the page, so the whole wait normally costs a single WebDriver command.
+     * A navigation unloads the document the script runs in, the script is then issued again
+     * on the new document until the budget runs out.
+     *
+     * @param name          name the wait is recorded under
+     * @param jsCondition   expression such as "document.readyState === 'complete'"
+     * @param timeoutMillis budget of the wait
+     * @return true if the condition became true within the budget
+     */
+    public static boolean untilInBrowser(String name, String jsCondition, long timeoutMillis) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        TimeoutManager.of(Driver.get()).atLeastScriptTimeout(timeoutMillis + 2000, TimeUnit.MILLISECONDS);
+        String script = "var budget = arguments[0], done = arguments[arguments.length - 1];" +
+                "var start = Date.now(), delay = 4;" +
+                "var check = function () { try { return !!(" + jsCondition + "); } catch (e) { return false; } };" +
+                "(function poll() {" +
+                "  if (check()) return done(true);" +
+                "  if (Date.now() - start >= budget) return done(false);" +
+                "  setTimeout(poll, delay); delay = Math.min(delay * 2, 100);" +
+                "})();";
+        ConfigurationReader.Snapshot config = ConfigurationReader.snapshot();
+        long pollMillis = config.getInt("wait.minPollMillis", 5);
+        long maxPollMillis = config.getInt("wait.maxPollMillis", 250);
+        boolean satisfied = false;
+        try {
+            while (true) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0)
+                    break;
+                try {
+                    satisfied = Boolean.TRUE.equals(((JavascriptExecutor) Driver.get()).executeAsyncScript(script, remaining));
+                    break;
+                } catch (WebDriverException e) {
+                    // "document unloaded while waiting for result": a page load is in progress, wait on the next document
+                }
+                TimeUnit.MILLISECONDS.sleep(pollMillis);
+                pollMillis = Math.min(pollMillis * 2, maxPollMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        record(name, start, deadline, !satisfied);
+        return satisfied;
+    }
+
+    /**
+     * Plain pause that is still recorded, use it only when there is nothing to wait for
+     */
+    public static void pause(String name, long millis) {
+        long start = System.nanoTime();
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        record(name, start, start + TimeUnit.MILLISECONDS.toNanos(millis), false);
+    }
+
+    static void record(String name, long start, long deadline, boolean timedOut) {
+        stats.computeIfAbsent(name, k -> new WaitStats()).add(System.nanoTime() - start, deadline - start, timedOut);
+    }
+
+    public static Map<String, WaitStats> getStats() {
+        return stats;
+    }
+
+    public static String getStatistics() {
+        StringBuilder builder = new StringBuilder("Waits:");
+        for (Map.Entry<String, WaitStats> entry : stats.entrySet()) {
+            builder.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    public static class WaitStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder elapsedNanos = new LongAdder();
+        private final LongAdder budgetNanos = new LongAdder();
+        private final AtomicLong maxElapsedNanos = new AtomicLong();
+
+        void add(long elapsed, long budget, boolean timedOut) {
+            count.increment();
+            if (timedOut)
+                timeouts.increment();
+            elapsedNanos.add(elapsed);
+            budgetNanos.add(budget);
+            maxElapsedNanos.accumulateAndGet(elapsed, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTimeouts() {
+            return timeouts.sum();
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos.sum());
+        }
+
+        public long getBudgetMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(budgetNanos.sum());
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount() +
+                    ", timeouts=" + getTimeouts() +
+                    ", elapsedMs=" + getElapsedMillis() +
+                    ", budgetMs=" + getBudgetMillis() +
+                    ", maxElapsedMs=" + TimeUnit.NANOSECONDS.toMillis(maxElapsedNanos.get());
+        }
+    }
+}
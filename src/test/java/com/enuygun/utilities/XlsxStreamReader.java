@@ -0,0 +1,271 @@
+package com.enuygun.utilities;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/*
+ * Reads an xlsx sheet row by row straight from the sheet XML, without building the workbook.
+ * Only the shared strings table and the current row are in memory, so a 200k row sheet needs
+ * about as much heap as a 200 row one.
+ *
+ * Rows are as wide as the header row. Missing cells are "" and missing rows are rows of "".
+ * Values are the same text ExcelUtil returns (cell.toString()), except dates,
+ * which come as their serial number because the cell styles are not read.
+ */
+public class XlsxStreamReader implements Iterator<String[]>, Closeable {
+
+    private static final XMLInputFactory factory = createFactory();
+
+    private final OPCPackage pkg;
+    private final ReadOnlySharedStringsTable sharedStrings;
+    private final InputStream sheet;
+    private final XMLStreamReader xml;
+
+    private int width = -1;
+    private int nextRow;
+    private String[] pending;
+    private int pendingRow;
+    private boolean finished;
+
+    public XlsxStreamReader(String path, String sheetName) {
+        OPCPackage opened = null;
+        InputStream stream = null;
+        try {
+            opened = OPCPackage.open(path, PackageAccess.READ);
+            XSSFReader reader = new XSSFReader(opened);
+            // without the phonetic runs, like the text of XSSFRichTextString
+            sharedStrings = new ReadOnlySharedStringsTable(opened, false);
+            stream = openSheet(reader, sheetName);
+            if (stream == null)
+                throw new RuntimeException("Sheet: \"" + sheetName + "\" does not exist\n");
+            xml = factory.createXMLStreamReader(stream);
+        } catch (Exception e) {
+            // there is no reader to close, so the package is released here
+            release(opened, stream);
+            throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+        }
+        pkg = opened;
+        sheet = stream;
+    }
+
+    private static void release(OPCPackage opened, InputStream stream) {
+        try {
+            if (stream != null)
+                stream.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (opened != null)
+                opened.revert();
+        }
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private static InputStream openSheet(XSSFReader reader, String sheetName) throws Exception {
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (sheets.hasNext()) {
+            InputStream stream = sheets.next();
+            if (sheets.getSheetName().equals(sheetName))
+                return stream;
+            stream.close();
+        }
+        return null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (pending == null && !finished)
+            readRow();
+        return pending != null;
+    }
+
+    @Override
+    public String[] next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        if (pendingRow > nextRow) {
+            // the sheet has no element for this row
+            nextRow++;
+            String[] empty = new String[width];
+            Arrays.fill(empty, "");
+            return empty;
+        }
+        String[] row = pending;
+        pending = null;
+        nextRow++;
+        return row;
+    }
+
+    /**
+     * @return index of the row the next call of next() returns, 0 is the header
+     */
+    public int getRowIndex() {
+        return nextRow;
+    }
+
+    private void readRow() {
+        try {
+            while (xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && "row".equals(xml.getLocalName())) {
+                    String r = xml.getAttributeValue(null, "r");
+                    pendingRow = r != null ? Integer.parseInt(r) - 1 : nextRow;
+                    pending = readCells();
+                    return;
+                }
+            }
+            finished = true;
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String[] readCells() throws XMLStreamException {
+        List<String> values = new ArrayList<>();
+        int column = 0;
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "row".equals(xml.getLocalName()))
+                break;
+            if (event != XMLStreamConstants.START_ELEMENT || !"c".equals(xml.getLocalName()))
+                continue;
+            String reference = xml.getAttributeValue(null, "r");
+            if (reference != null)
+                column = columnOf(reference);
+            String type = xml.getAttributeValue(null, "t");
+            String value = value(type, readCellText());
+            while (values.size() <= column) {
+                values.add("");
+            }
+            values.set(column, value);
+            column++;
+        }
+        // the header row decides the width, like columnCount()
+        if (width < 0)
+            width = values.size();
+        String[] row = new String[width];
+        for (int i = 0; i < width; i++) {
+            row[i] = i < values.size() ? values.get(i) : "";
+        }
+        return row;
+    }
+
+    // text of <v>, or of the <t> elements of an inline string, until the end of the cell.
+    // The <t> of a phonetic run (<rPh>) is the reading of the text, not part of it, like in XSSFRichTextString
+    private String readCellText() throws XMLStreamException {
+        StringBuilder text = null;
+        boolean phonetic = false;
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "c".equals(xml.getLocalName()))
+                break;
+            if (event == XMLStreamConstants.END_ELEMENT && "rPh".equals(xml.getLocalName()))
+                phonetic = false;
+            if (event != XMLStreamConstants.START_ELEMENT)
+                continue;
+            String name = xml.getLocalName();
+            if ("rPh".equals(name)) {
+                phonetic = true;
+            } else if ("v".equals(name) || ("t".equals(name) && !phonetic)) {
+                if (text == null)
+                    text = new StringBuilder();
+                text.append(xml.getElementText());
+            }
+        }
+        return text == null ? null : text.toString();
+    }
+
+    private static int columnOf(String reference) {
+        int column = 0;
+        for (int i = 0; i < reference.length() && Character.isLetter(reference.charAt(i)); i++) {
+            column = column * 26 + (reference.charAt(i) - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    private String value(String type, String raw) {
+        if (raw == null)
+            return "";
+        if (type == null)
+            type = "n";
+        switch (type) {
+            case "s":
+                return sharedStrings.getItemAt(Integer.parseInt(raw)).getString();
+            case "b":
+                return "1".equals(raw) ? "TRUE" : "FALSE";
+            case "n":
+                // same text as cell.toString() of a numeric cell, e.g. 42 -> 42.0
+                try {
+                    return Double.toString(Double.parseDouble(raw));
+                } catch (NumberFormatException e) {
+                    return raw;
+                }
+            default:
+                return raw;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            xml.close();
+            sheet.close();
+        } catch (XMLStreamException | IOException e) {
+            e.printStackTrace();
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    /**
+     * Same shape as ExcelUtil.getDataArray() / getDataArrayWithoutFirstRow()
+     */
+    public static String[][] getDataArray(String path, String sheetName, boolean skipHeader) {
+        List<String[]> rows = new ArrayList<>();
+        try (XlsxStreamReader reader = new XlsxStreamReader(path, sheetName)) {
+            if (skipHeader && reader.hasNext())
+                reader.next();
+            while (reader.hasNext()) {
+                rows.add(reader.next());
+            }
+        }
+        return rows.toArray(new String[0][]);
+    }
+
+    /**
+     * Same shape as ExcelUtil.getDataList()
+     */
+    public static List<Map<String, String>> getDataList(String path, String sheetName) {
+        List<Map<String, String>> data = new ArrayList<>();
+        try (XlsxStreamReader reader = new XlsxStreamReader(path, sheetName)) {
+            if (!reader.hasNext())
+                return data;
+            SheetRow.Header header = new SheetRow.Header(Arrays.asList(reader.next()));
+            while (reader.hasNext()) {
+                data.add(new SheetRow(header, reader.next()));
+            }
+        }
+        return data;
+    }
+}
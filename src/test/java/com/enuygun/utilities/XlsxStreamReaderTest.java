@@ -0,0 +1,179 @@
+package com.enuygun.utilities;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/*
+ * The fixture workbooks are written with POI, once with shared strings (XSSFWorkbook)
+ * and once with inline strings (SXSSFWorkbook), the two ways Excel and other tools store text.
+ */
+public class XlsxStreamReaderTest {
+
+    private Path directory;
+    private String shared;
+    private String inline;
+
+    @BeforeClass
+    public void writeFixtures() throws IOException {
+        directory = Files.createTempDirectory("xlsx-stream");
+        shared = write(new XSSFWorkbook(), "shared.xlsx");
+        inline = write(new SXSSFWorkbook(), "inline.xlsx");
+    }
+
+    // header "name, age, member", a row with a gap in column 1, an empty row 2, a row without the last cell
+    private String write(Workbook workbook, String name) throws IOException {
+        Sheet sheet = workbook.createSheet("Data");
+        workbook.createSheet("Other").createRow(0).createCell(0).setCellValue("other");
+
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("name");
+        header.createCell(1).setCellValue("age");
+        header.createCell(2).setCellValue("member");
+
+        Row first = sheet.createRow(1);
+        first.createCell(0).setCellValue("Ayşe");
+        first.createCell(2).setCellValue(true);
+
+        Row third = sheet.createRow(3);
+        third.createCell(0).setCellValue("Mehmet");
+        third.createCell(1).setCellValue(42);
+
+        return save(workbook, name);
+    }
+
+    private String save(Workbook workbook, String name) throws IOException {
+        File file = directory.resolve(name).toFile();
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            workbook.write(out);
+        } finally {
+            workbook.close();
+        }
+        return file.getPath();
+    }
+
+    // a sheet with "Tokyo" in A1, whose text then gets a phonetic run (<rPh>) in the given part of the package
+    private String writePhonetic(Workbook workbook, String name, String part) throws IOException {
+        workbook.createSheet("Data").createRow(0).createCell(0).setCellValue("Tokyo");
+        String plain = save(workbook, name);
+        File file = directory.resolve("phonetic-" + name).toFile();
+        try (ZipFile zip = new ZipFile(plain); ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                byte[] bytes;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    bytes = IOUtils.toByteArray(in);
+                }
+                if (entry.getName().equals(part)) {
+                    String xml = new String(bytes, StandardCharsets.UTF_8);
+                    Assert.assertTrue(xml.contains("<t>Tokyo</t>"), xml);
+                    bytes = xml.replace("<t>Tokyo</t>", "<t>Tokyo</t><rPh sb=\"0\" eb=\"5\"><t>toukyou</t></rPh>").getBytes(StandardCharsets.UTF_8);
+                }
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                out.write(bytes);
+                out.closeEntry();
+            }
+        }
+        return file.getPath();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void deleteFixtures() throws IOException {
+        for (File file : directory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void readsSharedStrings() {
+        assertRows(XlsxStreamReader.getDataArray(shared, "Data", false));
+    }
+
+    @Test
+    public void readsInlineStrings() {
+        assertRows(XlsxStreamReader.getDataArray(inline, "Data", false));
+    }
+
+    private static void assertRows(String[][] rows) {
+        Assert.assertEquals(rows.length, 4);
+        Assert.assertEquals(rows[0], new String[]{"name", "age", "member"});
+        Assert.assertEquals(rows[1], new String[]{"Ayşe", "", "TRUE"});
+        Assert.assertEquals(rows[2], new String[]{"", "", ""});
+        Assert.assertEquals(rows[3], new String[]{"Mehmet", "42.0", ""});
+    }
+
+    @Test
+    public void givesTheSameTextAsExcelUtil() {
+        // only cells that exist, getCellData fails on missing ones
+        ExcelUtil excel = new ExcelUtil(shared, "Data");
+        String[][] rows = XlsxStreamReader.getDataArray(shared, "Data", false);
+        int[][] cells = {{0, 0}, {0, 2}, {1, 0}, {1, 2}, {3, 0}, {3, 1}};
+        for (int[] cell : cells) {
+            Assert.assertEquals(rows[cell[0]][cell[1]], excel.getCellData(cell[0], cell[1]), "row " + cell[0] + ", column " + cell[1]);
+        }
+    }
+
+    @Test
+    public void countsRowsIncludingMissingOnes() {
+        try (XlsxStreamReader reader = new XlsxStreamReader(shared, "Data")) {
+            Assert.assertEquals(reader.getRowIndex(), 0);
+            for (int i = 0; i < 4; i++) {
+                Assert.assertTrue(reader.hasNext());
+                reader.next();
+                Assert.assertEquals(reader.getRowIndex(), i + 1);
+            }
+            Assert.assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void mapsRowsByHeader() {
+        List<Map<String, String>> rows = XlsxStreamReader.getDataList(inline, "Data");
+        Assert.assertEquals(rows.size(), 3);
+        Assert.assertEquals(rows.get(0).get("name"), "Ayşe");
+        Assert.assertEquals(rows.get(0).get("member"), "TRUE");
+        Assert.assertEquals(rows.get(2).get("age"), "42.0");
+    }
+
+    @Test
+    public void readsTheRequestedSheet() {
+        String[][] rows = XlsxStreamReader.getDataArray(shared, "Other", false);
+        Assert.assertEquals(rows, new String[][]{{"other"}});
+    }
+
+    @Test
+    public void leavesOutPhoneticRuns() throws IOException {
+        String shared = writePhonetic(new XSSFWorkbook(), "tokyo-shared.xlsx", "xl/sharedStrings.xml");
+        String inline = writePhonetic(new SXSSFWorkbook(), "tokyo-inline.xlsx", "xl/worksheets/sheet1.xml");
+
+        Assert.assertEquals(XlsxStreamReader.getDataArray(shared, "Data", false), new String[][]{{"Tokyo"}});
+        Assert.assertEquals(XlsxStreamReader.getDataArray(inline, "Data", false), new String[][]{{"Tokyo"}});
+        Assert.assertEquals(new ExcelUtil(shared, "Data").getCellData(0, 0), "Tokyo");
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ".*does not exist.*")
+    public void rejectsAMissingSheet() {
+        new XlsxStreamReader(shared, "Missing").close();
+    }
+}
@@ -0,0 +1,73 @@
+package com.enuygun.utilities.failedTestRunners;
+
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+/*
+ * Tells infrastructure flakes from real failures.
+ * Retryable: crashed or lost browser sessions, timeouts and stale elements, also when BrowserUtils wrapped them
+ * into a RuntimeException. Never retryable: assertion failures, wherever they are in the cause chain.
+ */
+public class FailureClassifier {
+
+    // messages of a plain WebDriverException when the browser died under the session
+    private static final String[] SESSION_LOST = {
+            "chrome not reachable", "disconnected: not connected to DevTools", "session deleted because of page crash",
+            "tab crashed", "Failed to decode response from marionette", "Browsing context has been discarded"
+    };
+
+    private FailureClassifier() {
+
+    }
+
+    public static boolean isRetryable(Throwable failure) {
+        boolean retryable = false;
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AssertionError)
+                return false;
+            if (isInfrastructure(cause))
+                retryable = true;
+        }
+        return retryable;
+    }
+
+    private static boolean isInfrastructure(Throwable cause) {
+        if (cause instanceof TimeoutException
+                || cause instanceof StaleElementReferenceException
+                || cause instanceof NoSuchSessionException
+                || cause instanceof SessionNotCreatedException
+                || cause instanceof UnreachableBrowserException
+                || cause instanceof java.util.concurrent.TimeoutException
+                || cause instanceof SocketTimeoutException
+                || cause instanceof ConnectException)
+            return true;
+        if (cause instanceof WebDriverException && cause.getMessage() != null) {
+            for (String message : SESSION_LOST) {
+                if (cause.getMessage().contains(message))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return short name of the failure for the retry summary
+     */
+    static String describe(Throwable failure) {
+        if (failure == null)
+            return "";
+        Throwable cause = failure;
+        // the wrapper of BrowserUtils says nothing, its cause does
+        while (cause.getClass() == RuntimeException.class && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getClass().getSimpleName();
+    }
+}
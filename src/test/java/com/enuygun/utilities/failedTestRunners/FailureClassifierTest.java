@@ -0,0 +1,66 @@
+package com.enuygun.utilities.failedTestRunners;
+
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+public class FailureClassifierTest {
+
+    @DataProvider
+    public Object[][] flakes() {
+        return new Object[][]{
+                {new TimeoutException("waited 10 s")},
+                {new StaleElementReferenceException("element is not attached")},
+                {new NoSuchSessionException("session deleted")},
+                {new UnreachableBrowserException("no response")},
+                {new WebDriverException("unknown error: chrome not reachable")},
+                {new WebDriverException("unknown error: session deleted because of page crash")},
+                {new RuntimeException(new SocketTimeoutException("Read timed out"))},
+                {new RuntimeException(new WebDriverException(new ConnectException("Connection refused")))},
+        };
+    }
+
+    @Test(dataProvider = "flakes")
+    public void retriesInfrastructureFailures(Throwable failure) {
+        Assert.assertTrue(FailureClassifier.isRetryable(failure), failure.toString());
+    }
+
+    @DataProvider
+    public Object[][] realFailures() {
+        return new Object[][]{
+                {new AssertionError("expected [1] but found [2]")},
+                {new NoSuchElementException("no such element")},
+                {new WebDriverException("element click intercepted")},
+                {new IllegalStateException("bad data")},
+                // an assertion failure is never retried, wherever it is in the cause chain
+                {new RuntimeException(new AssertionError("wrong page", new TimeoutException("waited 10 s")))},
+                {new TimeoutException("waited 10 s", new AssertionError("wrong page"))},
+        };
+    }
+
+    @Test(dataProvider = "realFailures")
+    public void doesNotRetryRealFailures(Throwable failure) {
+        Assert.assertFalse(FailureClassifier.isRetryable(failure), failure.toString());
+    }
+
+    @Test
+    public void doesNotRetryWithoutAFailure() {
+        Assert.assertFalse(FailureClassifier.isRetryable(null));
+    }
+
+    @Test
+    public void describesTheCauseOfAWrapper() {
+        Assert.assertEquals(FailureClassifier.describe(new RuntimeException(new RuntimeException(new TimeoutException()))), "TimeoutException");
+        Assert.assertEquals(FailureClassifier.describe(new StaleElementReferenceException("gone")), "StaleElementReferenceException");
+        Assert.assertEquals(FailureClassifier.describe(null), "");
+    }
+}
@@ -0,0 +1,212 @@
+package com.enuygun.utilities.failedTestRunners;
+
+import com.enuygun.utilities.ConfigurationReader;
+import com.enuygun.utilities.ReportWriter;
+import com.enuygun.utilities.StepLogger;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.TestNG;
+import org.testng.TestRunner;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Reruns infrastructure flakes (see FailureClassifier) in a tail phase: when the regular tests of a <test> are done,
+ * the deferred failures run again in a nested TestNG run with their own worker threads and fresh browser sessions.
+ * A flake is not rerun in place, so it does not hold a worker (and the critical path) while the other tests wait.
+ *
+ * The first attempt of a deferred failure is turned into a SKIP right after the test method, before TestNG,
+ * Surefire or the report see it, so a retry that passes leaves no failure behind. The nested run reports to the
+ * listeners of the outer <test>, a retry that fails again is a failure of the run like any other.
+ * The Extent report gets a "Retries" test listing first attempt and final outcome of every retried test.
+ * The number of retries is capped for the whole suite, so a broken grid does not double the run time.
+ * Data-driven methods rerun only the deferred rows.
+ *
+ * configuration.properties:
+ *   retry.budget=10        retries for the whole suite
+ *   retry.threads=4        parallel workers of the tail phase
+ */
+public class RetryListenerClass implements IInvokedMethodListener, ITestListener {
+
+    private static final AtomicInteger budget = new AtomicInteger(ConfigurationReader.getInt("retry.budget", 10));
+    private static final int threads = ConfigurationReader.getInt("retry.threads", 4);
+
+    private static final String DEFERRED = "retry.deferred";
+
+    private static final Map<String, Queue<ITestResult>> deferred = new ConcurrentHashMap<>();
+    private static volatile boolean tailPhase;
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult result) {
+
+    }
+
+    // right after the test method, TestNG takes a status changed here as the result of the test
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (!method.isTestMethod() || tailPhase || result.getStatus() != ITestResult.FAILURE
+                || !FailureClassifier.isRetryable(result.getThrowable()))
+            return;
+        if (defer(result)) {
+            result.setAttribute(DEFERRED, Boolean.TRUE);
+            result.setStatus(ITestResult.SKIP);
+        }
+    }
+
+    /**
+     * @return true when the failure of this result will be retried in the tail phase, its status is SKIP
+     */
+    public static boolean isDeferred(ITestResult result) {
+        return Boolean.TRUE.equals(result.getAttribute(DEFERRED));
+    }
+
+    /**
+     * @return true while the deferred retries run, the suite level tear down of TestBase waits for the outer run
+     */
+    public static boolean isTailPhase() {
+        return tailPhase;
+    }
+
+    private static boolean defer(ITestResult result) {
+        if (budget.getAndDecrement() <= 0) {
+            budget.incrementAndGet();
+            System.out.println("Retry budget used up, not retrying " + key(result));
+            return false;
+        }
+        deferred.computeIfAbsent(result.getTestContext().getName(), k -> new ConcurrentLinkedQueue<>()).add(result);
+        return true;
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        Queue<ITestResult> failures = deferred.remove(context.getName());
+        if (failures == null || failures.isEmpty())
+            return;
+        List<ITestResult> firstAttempts = new ArrayList<>(failures);
+
+        FinalOutcome outcome = new FinalOutcome();
+        TestNG testng = new TestNG(false);
+        testng.setXmlSuites(Collections.singletonList(tailSuite(context, firstAttempts)));
+        testng.addListener(outcome);
+        // Surefire, the exit code and the other listeners of the outer run see the retries like the regular tests
+        if (context instanceof TestRunner) {
+            for (ITestListener listener : ((TestRunner) context).getTestListeners()) {
+                if (!(listener instanceof RetryListenerClass))
+                    testng.addListener(listener);
+            }
+        }
+        testng.setVerbose(0);
+        tailPhase = true;
+        try {
+            testng.run();
+        } finally {
+            tailPhase = false;
+        }
+
+        StringBuilder summary = new StringBuilder("Retried " + firstAttempts.size() + " flaky tests of " + context.getName() + ":");
+        ReportWriter.startTest("Retries: " + context.getName());
+        StepLogger report = StepLogger.get();
+        for (ITestResult first : firstAttempts) {
+            Integer status = outcome.finalStatus.get(key(first));
+            String line = String.format("%s  first: FAILURE (%s)  final: %s", key(first),
+                    FailureClassifier.describe(first.getThrowable()), status == null ? "NOT RUN" : statusName(status));
+            summary.append(String.format("%n  %s", line));
+            if (status != null && status == ITestResult.SUCCESS)
+                report.pass(line);
+            else if (status != null && status == ITestResult.FAILURE)
+                report.fail(line);
+            else
+                report.skip(line);
+        }
+        ReportWriter.endTest();
+        System.out.println(summary);
+    }
+
+    private static String statusName(int status) {
+        switch (status) {
+            case ITestResult.SUCCESS:
+                return "SUCCESS";
+            case ITestResult.FAILURE:
+                return "FAILURE";
+            default:
+                return "SKIP";
+        }
+    }
+
+    private static XmlSuite tailSuite(ITestContext context, List<ITestResult> failures) {
+        XmlSuite suite = new XmlSuite();
+        suite.setName(context.getSuite().getName() + " retries");
+        suite.setParallel(XmlSuite.ParallelMode.METHODS);
+        suite.setThreadCount(threads);
+        XmlTest test = new XmlTest(suite);
+        test.setName(context.getName() + " retries");
+        test.setParameters(context.getCurrentXmlTest().getAllParameters());
+
+        // the deferred rows of every method, rows that failed on an assertion are not rerun
+        Map<String, XmlClass> classes = new LinkedHashMap<>();
+        Map<String, ITestNGMethod> methods = new LinkedHashMap<>();
+        Map<String, List<Integer>> rows = new LinkedHashMap<>();
+        for (ITestResult failure : failures) {
+            ITestNGMethod method = failure.getMethod();
+            String includeKey = method.getRealClass().getName() + "." + method.getMethodName();
+            methods.putIfAbsent(includeKey, method);
+            List<Integer> indexes = rows.computeIfAbsent(includeKey, k -> new ArrayList<>());
+            if (failure.getParameters().length > 0 && !indexes.contains(failure.getParameterIndex()))
+                indexes.add(failure.getParameterIndex());
+        }
+        for (Map.Entry<String, ITestNGMethod> entry : methods.entrySet()) {
+            ITestNGMethod method = entry.getValue();
+            XmlClass xmlClass = classes.computeIfAbsent(method.getRealClass().getName(), k -> new XmlClass(k, false));
+            List<Integer> indexes = rows.get(entry.getKey());
+            xmlClass.getIncludedMethods().add(indexes.isEmpty()
+                    ? new XmlInclude(method.getMethodName())
+                    : new XmlInclude(method.getMethodName(), indexes, 0));
+        }
+        test.setXmlClasses(new ArrayList<>(classes.values()));
+        return suite;
+    }
+
+    private static String key(ITestResult result) {
+        String name = result.getMethod().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName();
+        return result.getParameters().length == 0 ? name : name + Arrays.toString(result.getParameters());
+    }
+
+    /*
+     * outcome of every test of the tail phase, by the same key as the first attempt
+     */
+    private static class FinalOutcome implements ITestListener {
+        private final Map<String, Integer> finalStatus = new ConcurrentHashMap<>();
+
+        @Override
+        public void onTestSuccess(ITestResult result) {
+            finalStatus.put(key(result), ITestResult.SUCCESS);
+        }
+
+        @Override
+        public void onTestFailure(ITestResult result) {
+            finalStatus.put(key(result), ITestResult.FAILURE);
+        }
+
+        @Override
+        public void onTestSkipped(ITestResult result) {
+            finalStatus.put(key(result), ITestResult.SKIP);
+        }
+    }
+}
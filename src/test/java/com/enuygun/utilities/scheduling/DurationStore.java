@@ -0,0 +1,154 @@
+package com.enuygun.utilities.scheduling;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Durations of past test runs, one line per test method and run:
+ * "<epoch millis>\t<test>\t<total millis of the run>\t<invocations>".
+ * Runs only append to the file; when it grows past MAX_LINES it is rewritten with the last runs of every test,
+ * at most HISTORY and no more than fit in half of MAX_LINES, so the next runs append again for a while.
+ * A line cut off by a killed run is ignored.
+ */
+public class DurationStore {
+
+    private static final int HISTORY = 20;
+    private static final int MAX_LINES = 20000;
+
+    private final Path file;
+    private final Map<String, Deque<long[]>> durations = new HashMap<>();
+    private int lines;
+
+    public DurationStore(String path) {
+        this.file = new File(path).toPath();
+        load();
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file))
+            return;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                // a line cut off by a killed run
+                if (fields.length != 4)
+                    continue;
+                try {
+                    add(fields[1], Long.parseLong(fields[2]), Integer.parseInt(fields[3]));
+                    lines++;
+                } catch (NumberFormatException e) {
+                    // cut off inside a number
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void add(String test, long millis, long invocations) {
+        Deque<long[]> history = durations.computeIfAbsent(test, k -> new ArrayDeque<>());
+        history.addLast(new long[]{millis, invocations});
+        if (history.size() > HISTORY)
+            history.removeFirst();
+    }
+
+    /**
+     * @return the 90th percentile of the recent run totals of the test, or -1 when it never ran
+     */
+    public synchronized long getP90(String test) {
+        Deque<long[]> history = durations.get(test);
+        if (history == null || history.isEmpty())
+            return -1;
+        List<Long> sorted = new ArrayList<>();
+        for (long[] run : history) {
+            sorted.add(run[0]);
+        }
+        Collections.sort(sorted);
+        return sorted.get((int) Math.ceil(sorted.size() * 0.9) - 1);
+    }
+
+    /**
+     * @return the median of the p90 of all known tests, or -1 when nothing is known
+     */
+    public synchronized long getMedianP90() {
+        List<Long> values = new ArrayList<>();
+        for (String test : durations.keySet()) {
+            values.add(getP90(test));
+        }
+        if (values.isEmpty())
+            return -1;
+        Collections.sort(values);
+        return values.get(values.size() / 2);
+    }
+
+    /**
+     * Appends the durations of this run to the file
+     *
+     * @param run total millis and number of invocations of every test
+     */
+    public synchronized void append(Map<String, long[]> run) {
+        if (run.isEmpty())
+            return;
+        long now = System.currentTimeMillis();
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, long[]> test : run.entrySet()) {
+            long[] total = test.getValue();
+            line(text, now, test.getKey(), total);
+            add(test.getKey(), total[0], total[1]);
+            lines++;
+        }
+        try {
+            file.toAbsolutePath().getParent().toFile().mkdirs();
+            if (lines > MAX_LINES) {
+                compact();
+            } else {
+                Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void line(StringBuilder text, long now, String test, long[] run) {
+        text.append(now).append('\t').append(test).append('\t').append(run[0]).append('\t').append(run[1]).append('\n');
+    }
+
+    // keeps the last runs of every test within half of MAX_LINES, written to a temp file and renamed
+    private void compact() throws IOException {
+        int keep = Math.max(1, Math.min(HISTORY, MAX_LINES / 2 / durations.size()));
+        long now = System.currentTimeMillis();
+        StringBuilder text = new StringBuilder();
+        lines = 0;
+        for (Map.Entry<String, Deque<long[]>> test : durations.entrySet()) {
+            Deque<long[]> history = test.getValue();
+            while (history.size() > keep) {
+                history.removeFirst();
+            }
+            for (long[] run : history) {
+                line(text, now, test.getKey(), run);
+                lines++;
+            }
+        }
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, text.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.enuygun.utilities.scheduling;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class DurationStoreTest {
+
+    private Path directory;
+    private Path file;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("durations");
+        file = directory.resolve("test-durations.tsv");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private DurationStore store() {
+        return new DurationStore(file.toString());
+    }
+
+    private static Map<String, long[]> run(String test, long millis) {
+        return Collections.singletonMap(test, new long[]{millis, 1});
+    }
+
+    @Test
+    public void knowsNothingWithoutAFile() {
+        DurationStore store = store();
+        Assert.assertEquals(store.getP90("A.test"), -1);
+        Assert.assertEquals(store.getMedianP90(), -1);
+        Assert.assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void keepsTheRunsOfEveryTest() {
+        DurationStore store = store();
+        for (long millis = 1000; millis <= 10000; millis += 1000) {
+            store.append(run("A.test", millis));
+        }
+        Assert.assertEquals(store.getP90("A.test"), 9000);
+        // read back by the next run
+        Assert.assertEquals(store().getP90("A.test"), 9000);
+    }
+
+    @Test
+    public void usesTheLastTwentyRuns() {
+        DurationStore store = store();
+        for (int i = 0; i < 10; i++) {
+            store.append(run("A.test", 100000));
+        }
+        for (int i = 0; i < 20; i++) {
+            store.append(run("A.test", 1000));
+        }
+        Assert.assertEquals(store.getP90("A.test"), 1000);
+        Assert.assertEquals(store().getP90("A.test"), 1000);
+    }
+
+    @Test
+    public void takesTheMedianOfAllTests() {
+        Map<String, long[]> run = new HashMap<>();
+        run.put("A.test", new long[]{1000, 1});
+        run.put("B.test", new long[]{5000, 3});
+        run.put("C.test", new long[]{9000, 1});
+        DurationStore store = store();
+        store.append(run);
+        Assert.assertEquals(store.getMedianP90(), 5000);
+    }
+
+    @Test
+    public void compactsALongFile() throws IOException {
+        Map<String, long[]> run = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            run.put("T.test" + i, new long[]{i, 1});
+        }
+        DurationStore store = store();
+        for (int i = 0; i < 25; i++) {
+            store.append(run);
+        }
+        // the 21st run goes past 20000 lines and leaves the last 10 runs of every test, the 4 after it are appended
+        Assert.assertEquals(Files.readAllLines(file, StandardCharsets.UTF_8).size(), 14000);
+        Assert.assertEquals(store().getP90("T.test999"), 999);
+    }
+}
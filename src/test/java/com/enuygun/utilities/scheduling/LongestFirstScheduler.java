@@ -0,0 +1,180 @@
+package com.enuygun.utilities.scheduling;
+
+import com.enuygun.utilities.ConfigurationReader;
+import com.enuygun.utilities.failedTestRunners.RetryListenerClass;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Starts the tests that took longest in earlier runs first (LPT scheduling), so the last test to start is a short one
+ * and the workers finish at about the same time instead of waiting for a slow test picked up at the end.
+ * A test is expected to take the p90 of its recent durations; a test without history gets the median of the others.
+ * The duration of a test method is what it costs a worker in one run: every invocation (all rows of a data-driven
+ * method) from the start of its @BeforeMethod to the end of its @AfterMethod, so browser start, page load and
+ * the tear down are included. After each <test> the durations are appended to the DurationStore and the
+ * predicted makespan (wall clock of the <test>) is printed next to the actual one. Retries are not recorded.
+ *
+ * configuration.properties:
+ *   schedule.durationStore=test-output/test-durations.tsv
+ *   schedule.defaultMillis=60000     expected duration when there is no history at all
+ */
+public class LongestFirstScheduler implements IMethodInterceptor, IInvokedMethodListener, ITestListener {
+
+    private final DurationStore store = new DurationStore(ConfigurationReader.get("schedule.durationStore",
+            System.getProperty("user.dir") + "/test-output/test-durations.tsv"));
+    // per <test>: the total of every test method, and the invocation each worker thread is in
+    private final Map<String, Map<String, long[]>> run = new HashMap<>();
+    private final Map<Thread, Invocation> invocations = new ConcurrentHashMap<>();
+    private final Map<String, Long> predicted = new ConcurrentHashMap<>();
+    private final Map<String, Long> started = new ConcurrentHashMap<>();
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        long fallback = store.getMedianP90();
+        if (fallback < 0)
+            fallback = ConfigurationReader.getLong("schedule.defaultMillis", 60000);
+
+        Map<IMethodInstance, Long> expected = new HashMap<>();
+        for (IMethodInstance method : methods) {
+            long p90 = store.getP90(key(method.getMethod()));
+            expected.put(method, p90 < 0 ? fallback : p90);
+        }
+        List<IMethodInstance> ordered = new ArrayList<>(methods);
+        ordered.sort((a, b) -> Long.compare(expected.get(b), expected.get(a)));
+
+        List<Long> durations = new ArrayList<>();
+        for (IMethodInstance method : ordered) {
+            durations.add(expected.get(method));
+        }
+        predicted.merge(context.getName(), makespan(durations, workers(context)), Long::sum);
+        return ordered;
+    }
+
+    // longest first onto the least loaded worker, the finish time of the busiest worker
+    private static long makespan(List<Long> durations, int workers) {
+        PriorityQueue<Long> loads = new PriorityQueue<>(Collections.nCopies(workers, 0L));
+        for (long duration : durations) {
+            loads.add(loads.poll() + duration);
+        }
+        return Collections.max(loads);
+    }
+
+    private static int workers(ITestContext context) {
+        XmlSuite.ParallelMode parallel = context.getCurrentXmlTest().getParallel();
+        if (parallel == null || parallel == XmlSuite.ParallelMode.NONE)
+            return 1;
+        return Math.max(1, context.getCurrentXmlTest().getThreadCount());
+    }
+
+    private static String key(ITestNGMethod method) {
+        return method.getRealClass().getName() + "." + method.getMethodName();
+    }
+
+    @Override
+    public void onStart(ITestContext context) {
+        started.put(context.getName(), System.nanoTime());
+    }
+
+    // an invocation starts with its first @BeforeMethod, or with the test method when there is none
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult result) {
+        if (RetryListenerClass.isTailPhase())
+            return;
+        ITestNGMethod invoked = method.getTestMethod();
+        if (!invoked.isTest() && !invoked.isBeforeMethodConfiguration())
+            return;
+        Invocation invocation = invocations.get(Thread.currentThread());
+        if (invocation != null && invocation.test != null) {
+            // the previous invocation of this thread is complete
+            record(invocation);
+            invocation = null;
+        }
+        if (invocation == null) {
+            invocation = new Invocation(result.getTestContext().getName(), System.nanoTime());
+            invocations.put(Thread.currentThread(), invocation);
+        }
+    }
+
+    // ... and ends with its last @AfterMethod, which is only known when the thread starts the next one
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (RetryListenerClass.isTailPhase())
+            return;
+        Invocation invocation = invocations.get(Thread.currentThread());
+        if (invocation == null)
+            return;
+        ITestNGMethod invoked = method.getTestMethod();
+        if (invoked.isTest()) {
+            invocation.test = key(invoked);
+            invocation.end = System.nanoTime();
+        } else if (invoked.isAfterMethodConfiguration() && invocation.test != null) {
+            invocation.end = System.nanoTime();
+        }
+    }
+
+    private void record(Invocation invocation) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(invocation.end - invocation.start);
+        synchronized (run) {
+            long[] total = run.computeIfAbsent(invocation.context, k -> new HashMap<>())
+                    .computeIfAbsent(invocation.test, k -> new long[2]);
+            total[0] += millis;
+            total[1]++;
+        }
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        Long start = started.remove(context.getName());
+        Long prediction = predicted.remove(context.getName());
+        if (start != null && prediction != null)
+            System.out.println(String.format("Makespan of %s: predicted %d s, actual %d s (%d workers)", context.getName(),
+                    TimeUnit.MILLISECONDS.toSeconds(prediction), TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), workers(context)));
+
+        if (RetryListenerClass.isTailPhase())
+            return;
+        // the workers are done, their last invocations too
+        for (Iterator<Invocation> it = invocations.values().iterator(); it.hasNext(); ) {
+            Invocation invocation = it.next();
+            if (!invocation.context.equals(context.getName()))
+                continue;
+            if (invocation.test != null)
+                record(invocation);
+            it.remove();
+        }
+        Map<String, long[]> finished;
+        synchronized (run) {
+            finished = run.remove(context.getName());
+        }
+        if (finished != null)
+            store.append(finished);
+    }
+
+    private static class Invocation {
+        private final String context;
+        private final long start;
+        private String test;
+        private long end;
+
+        private Invocation(String context, long start) {
+            this.context = context;
+            this.start = start;
+        }
+    }
+}